@@ -11,7 +11,9 @@ import com.epam.retrieval.KnowledgeBaseSearcher;
 import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main entry point for the Java RAG Code Review system.
@@ -47,32 +49,41 @@ public class Main {
         // This part for demo, but usually you will have all the indexes in some embedded DB, documents, etc.
         indexKnowledgeBase(kbDir, indexDir);
 
+        List<File> javaFiles = new ArrayList<>();
+        for (String testFile : testFiles) {
+            File javaFile = new File(testFile);
+            if (javaFile.exists()) {
+                javaFiles.add(javaFile);
+            } else {
+                System.out.println("Test file not found: " + testFile);
+            }
+        }
 
+        // Step 2: Run static analysis (Checkstyle + PMD) LLM like, one batch run for all files.
+        Map<File, List<AnalysisFinding>> staticFindings =
+            runStaticAnalysis(javaFiles, new File(checkstyleConfig), new File(pmdRuleset));
 
-        for (String testFile : testFiles) {
+        // One searcher for all files, so the knowledge base tags are compiled only once
+        KnowledgeBaseSearcher kbSearcher = new KnowledgeBaseSearcher(indexDir);
+
+        for (File javaFile : javaFiles) {
             System.out.println("\n" + "=".repeat(50));
-            System.out.println("Testing: " + testFile);
+            System.out.println("Testing: " + javaFile.getPath());
             System.out.println("=".repeat(50));
             
             try {
-                File javaFile = new File(testFile);
-                if (!javaFile.exists()) {
-                    System.out.println("Test file not found: " + testFile);
-                    continue;
-                }
-
-                // Step 2: Run static analysis (Checkstyle + PMD) LLM like.
-                List<AnalysisFinding> findings = runStaticAnalysis(javaFile, new File(checkstyleConfig), new File(pmdRuleset));
+                List<AnalysisFinding> findings = new ArrayList<>(staticFindings.get(javaFile));
+                System.out.println("Static analysis findings: " + findings.size());
 
                 // Step 2.5: Run KB-driven analysis (RAG proactive detection) Retrieval like
-                List<AnalysisFinding> kbFindings = runKBAnalysis(javaFile, indexDir);
+                List<AnalysisFinding> kbFindings = runKBAnalysis(javaFile, kbSearcher);
                 findings.addAll(kbFindings);
 
                 // Step 3: Generate feedback using RAG (Retrieval + Generation)
                 generateFeedback(findings, indexDir);
                 
             } catch (Exception e) {
-                System.err.println("Error analyzing " + testFile + ": " + e.getMessage());
+                System.err.println("Error analyzing " + javaFile.getPath() + ": " + e.getMessage());
             }
         }
         
@@ -106,30 +117,38 @@ public class Main {
     }
     
     /**
-     * Runs static analysis using both Checkstyle and PMD tools.
+     * Runs static analysis using both Checkstyle and PMD tools, each in a single run over all files.
      * 
-     * @param javaFile The Java source file to analyze
+     * @param javaFiles The Java source files to analyze
      * @param checkstyleConfig Checkstyle configuration file
      * @param pmdRuleset PMD ruleset file
-     * @return Combined list of findings from both tools
+     * @return Combined findings from both tools, per file
      * @throws Exception If analysis fails
      */
-    private static List<AnalysisFinding> runStaticAnalysis(File javaFile, File checkstyleConfig, File pmdRuleset) throws Exception {
-        System.out.println("Running static analysis...");
+    private static Map<File, List<AnalysisFinding>> runStaticAnalysis(List<File> javaFiles, File checkstyleConfig, File pmdRuleset) throws Exception {
+        System.out.println("Running static analysis on " + javaFiles.size() + " files...");
 
         // Run Checkstyle analysis
         CheckstyleAnalyzer checkstyle = new CheckstyleAnalyzer();
-        List<AnalysisFinding> checkstyleFindings = checkstyle.analyze(javaFile, checkstyleConfig);
-        List<AnalysisFinding> allFindings = new ArrayList<>(checkstyleFindings);
-        System.out.println("Checkstyle found " + checkstyleFindings.size() + " issues.");
+        Map<File, List<AnalysisFinding>> checkstyleFindings = checkstyle.analyzeAll(javaFiles, checkstyleConfig);
         
         // Run PMD analysis
         PMDAnalyzer pmd = new PMDAnalyzer();
-        List<AnalysisFinding> pmdFindings = pmd.analyze(javaFile, pmdRuleset);
-        allFindings.addAll(pmdFindings);
-        System.out.println("PMD found " + pmdFindings.size() + " issues.");
+        Map<File, List<AnalysisFinding>> pmdFindings =
+            pmd.analyzeAll(javaFiles, pmdRuleset, Runtime.getRuntime().availableProcessors());
+        
+        Map<File, List<AnalysisFinding>> allFindings = new LinkedHashMap<>();
+        int total = 0;
+        for (File javaFile : javaFiles) {
+            List<AnalysisFinding> findings = new ArrayList<>(checkstyleFindings.get(javaFile));
+            findings.addAll(pmdFindings.get(javaFile));
+            allFindings.put(javaFile, findings);
+            total += findings.size();
+            System.out.println(javaFile.getName() + ": Checkstyle found " + checkstyleFindings.get(javaFile).size()
+                + " issues, PMD found " + pmdFindings.get(javaFile).size() + " issues.");
+        }
         
-        System.out.println("Total findings: " + allFindings.size());
+        System.out.println("Total findings: " + total);
         return allFindings;
     }
     
@@ -137,14 +156,13 @@ public class Main {
      * Runs KB-driven analysis by searching for knowledge base patterns directly in the code.
      * 
      * @param javaFile The Java source file to analyze
-     * @param indexDir Directory containing the Lucene index
+     * @param searcher Searcher over the knowledge base index, shared by all files
      * @return List of findings based on knowledge base patterns
      * @throws Exception If analysis fails
      */
-    private static List<AnalysisFinding> runKBAnalysis(File javaFile, String indexDir) throws Exception {
+    private static List<AnalysisFinding> runKBAnalysis(File javaFile, KnowledgeBaseSearcher searcher) throws Exception {
         System.out.println("Running KB-driven analysis...");
         String sourceCode = Files.readString(javaFile.toPath());
-        KnowledgeBaseSearcher searcher = new KnowledgeBaseSearcher(indexDir);
         List<AnalysisFinding> findings = searcher.searchInCode(sourceCode, javaFile.getName());
         System.out.println("KB analysis found " + findings.size() + " issues.");
         findings.forEach(f -> System.out.println("KB-driven - " + f.issue()));
@@ -8,7 +8,10 @@ import com.puppycrawl.tools.checkstyle.PropertiesExpander;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Integrates Checkstyle static analysis tool to analyze Java code and collect findings.
@@ -25,7 +28,40 @@ public class CheckstyleAnalyzer {
      * @throws Exception If analysis fails due to configuration or file issues
      */
     public List<AnalysisFinding> analyze(File javaFile, File configFile) throws Exception {
-        List<AnalysisFinding> findings = new ArrayList<>();
+        return analyzeAll(List.of(javaFile), configFile).get(javaFile);
+    }
+
+    /**
+     * Analyzes all Java files under a directory (or a single file) in one Checkstyle run.
+     *
+     * @param fileOrDirectory A Java source file or a directory searched recursively
+     * @param configFile The Checkstyle configuration file containing rules
+     * @return Findings per file, in path order
+     * @throws Exception If the directory cannot be listed
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(File fileOrDirectory, File configFile) throws Exception {
+        return analyzeAll(SourceFiles.javaFiles(fileOrDirectory), configFile);
+    }
+
+    /**
+     * Analyzes several Java files in a single {@link Checker#process(List)} call, so the
+     * configuration is loaded and the checks are set up once for the whole batch. A file that
+     * cannot be parsed gets a "Checkstyle Analysis Error" finding and does not affect the
+     * findings of the other files.
+     *
+     * @param javaFiles The Java source files to analyze
+     * @param configFile The Checkstyle configuration file containing rules
+     * @return Findings per file in the order given; every file has an entry, possibly empty
+     * @throws Exception If analysis fails due to configuration or file issues
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(List<File> javaFiles, File configFile) throws Exception {
+        Map<File, List<AnalysisFinding>> findingsByFile = new LinkedHashMap<>();
+        Map<String, List<AnalysisFinding>> findingsByPath = new HashMap<>();
+        for (File javaFile : javaFiles) {
+            List<AnalysisFinding> findings = new ArrayList<>();
+            findingsByFile.put(javaFile, findings);
+            findingsByPath.put(javaFile.getAbsolutePath(), findings);
+        }
         
         try {
             // Load Checkstyle configuration
@@ -35,48 +71,65 @@ public class CheckstyleAnalyzer {
                 ConfigurationLoader.IgnoredModulesOptions.OMIT
             );
             
-            // Create and configure Checkstyle checker
+            // Create and configure Checkstyle checker; a file that cannot be checked is
+            // reported as an error for that file instead of ending the audit
             Checker checker = new Checker();
-            checker.setModuleClassLoader(Checker.class.getClassLoader());
-            checker.configure(config);
+            try {
+                checker.setModuleClassLoader(Checker.class.getClassLoader());
+                checker.setHaltOnException(false);
+                checker.configure(config);
 
-            // Add listener to collect audit events as findings
-            checker.addListener(new AuditListener() {
-                @Override
-                public void auditStarted(AuditEvent event) {}
-                
-                @Override
-                public void auditFinished(AuditEvent event) {}
-                
-                @Override
-                public void fileStarted(AuditEvent event) {}
-                
-                @Override
-                public void fileFinished(AuditEvent event) {}
-                
-                @Override
-                public void addError(AuditEvent event) {
-                    findings.add(new AnalysisFinding(
-                        event.getViolation().getKey(), 
-                        event.getFileName() + ":" + event.getLine() + " - " + event.getMessage()
-                    ));
-                }
-                
-                @Override
-                public void addException(AuditEvent event, Throwable throwable) {}
-            });
+                // Add listener to collect audit events as findings
+                checker.addListener(new AuditListener() {
+                    @Override
+                    public void auditStarted(AuditEvent event) {}
+                    
+                    @Override
+                    public void auditFinished(AuditEvent event) {}
+                    
+                    @Override
+                    public void fileStarted(AuditEvent event) {}
+                    
+                    @Override
+                    public void fileFinished(AuditEvent event) {}
+                    
+                    @Override
+                    public void addError(AuditEvent event) {
+                        findingsByPath.computeIfAbsent(event.getFileName(), k -> new ArrayList<>()).add(toFinding(event));
+                    }
+                    
+                    @Override
+                    public void addException(AuditEvent event, Throwable throwable) {}
+                });
 
-            // Process the Java file
-            checker.process(List.of(javaFile));
-            checker.destroy();
+                // Process all Java files in one audit
+                checker.process(new ArrayList<>(javaFiles));
+            } finally {
+                checker.destroy();
+            }
             
         } catch (Exception e) {
-            findings.add(new AnalysisFinding(
+            findingsByFile.forEach((javaFile, findings) -> findings.add(new AnalysisFinding(
                 "Checkstyle Analysis Error", 
                 "Could not analyze " + javaFile.getName() + ": " + e.getMessage()
-            ));
+            )));
         }
         
-        return findings;
+        return findingsByFile;
+    }
+
+    private static AnalysisFinding toFinding(AuditEvent event) {
+        if (Checker.EXCEPTION_MSG.equals(event.getViolation().getKey())) {
+            // The message holds the whole stack trace; its first line names the exception
+            return new AnalysisFinding(
+                "Checkstyle Analysis Error",
+                "Could not analyze " + new File(event.getFileName()).getName() + ": "
+                    + event.getMessage().lines().findFirst().orElse("")
+            );
+        }
+        return new AnalysisFinding(
+            event.getViolation().getKey(), 
+            event.getFileName() + ":" + event.getLine() + " - " + event.getMessage()
+        );
     }
-}
\ No newline at end of file
+}
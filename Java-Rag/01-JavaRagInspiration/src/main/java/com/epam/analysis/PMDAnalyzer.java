@@ -7,9 +7,13 @@ import net.sourceforge.pmd.lang.LanguageRegistry;
 import net.sourceforge.pmd.reporting.Report;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -26,31 +30,68 @@ public class PMDAnalyzer {
      * @return List of analysis findings discovered by PMD
      */
     public List<AnalysisFinding> analyze(File javaFile, File rulesetFile) {
-        List<AnalysisFinding> findings = new ArrayList<>();
+        return analyzeAll(List.of(javaFile), rulesetFile, 1).get(javaFile);
+    }
+
+    /**
+     * Analyzes all Java files under a directory (or a single file) in one PMD run,
+     * using one thread per available core.
+     *
+     * @param fileOrDirectory A Java source file or a directory searched recursively
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     * @return Findings per file, in path order
+     * @throws IOException If the directory cannot be listed
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(File fileOrDirectory, File rulesetFile) throws IOException {
+        return analyzeAll(SourceFiles.javaFiles(fileOrDirectory), rulesetFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Analyzes several Java files in a single PMD run; PMD spreads the files over its worker threads.
+     *
+     * @param javaFiles The Java source files to analyze
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     * @param threads Number of PMD worker threads
+     * @return Findings per file in the order given; every file has an entry, possibly empty
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(List<File> javaFiles, File rulesetFile, int threads) {
+        Map<File, List<AnalysisFinding>> findingsByFile = new LinkedHashMap<>();
+        Map<String, File> filesByPath = new HashMap<>();
+        for (File javaFile : javaFiles) {
+            findingsByFile.put(javaFile, new ArrayList<>());
+            filesByPath.put(javaFile.getAbsolutePath(), javaFile);
+        }
         
         try {
             PMDConfiguration configuration = new PMDConfiguration();
-            configuration.addInputPath(Path.of(javaFile.getAbsolutePath()));
+            javaFiles.forEach(javaFile -> configuration.addInputPath(Path.of(javaFile.getAbsolutePath())));
             configuration.addRuleSet(rulesetFile.getAbsolutePath());
             configuration.setDefaultLanguageVersion(
                 Objects.requireNonNull(LanguageRegistry.PMD.getLanguageById("java")).getDefaultVersion()
             );
+            configuration.setThreads(threads);
             
             try (PmdAnalysis pmd = PmdAnalysis.create(configuration)) {
                 Report report = pmd.performAnalysisAndCollectReport();
                 
-                report.getViolations().forEach(violation -> findings.add(new AnalysisFinding(
-                    violation.getRule().getName(),
-                    javaFile.getName() + ":" + violation.getBeginLine() + " - " + violation.getDescription()
-                )));
+                // Violations arrive in no particular file order; sort them back to their files
+                report.getViolations().forEach(violation -> {
+                    File javaFile = filesByPath.get(violation.getFileId().getAbsolutePath());
+                    if (javaFile != null) {
+                        findingsByFile.get(javaFile).add(new AnalysisFinding(
+                            violation.getRule().getName(),
+                            javaFile.getName() + ":" + violation.getBeginLine() + " - " + violation.getDescription()
+                        ));
+                    }
+                });
             }
         } catch (Exception e) {
-            findings.add(new AnalysisFinding(
+            findingsByFile.forEach((javaFile, findings) -> findings.add(new AnalysisFinding(
                 "PMD Analysis Error", 
                 "Could not analyze " + javaFile.getName() + ": " + e.getMessage()
-            ));
+            )));
         }
 
-        return findings;
+        return findingsByFile;
     }
 }
\ No newline at end of file
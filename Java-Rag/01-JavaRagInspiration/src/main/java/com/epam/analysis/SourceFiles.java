@@ -0,0 +1,37 @@
+package com.epam.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Collects the Java source files to analyze in a batch.
+ */
+final class SourceFiles {
+
+    private SourceFiles() {
+    }
+
+    /**
+     * Lists Java source files in path order.
+     *
+     * @param fileOrDirectory A single Java file, or a directory searched recursively
+     * @return The Java files found
+     * @throws IOException If the directory cannot be walked
+     */
+    static List<File> javaFiles(File fileOrDirectory) throws IOException {
+        if (!fileOrDirectory.isDirectory()) {
+            return List.of(fileOrDirectory);
+        }
+        try (Stream<Path> paths = Files.walk(fileOrDirectory.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".java"))
+                .sorted()
+                .map(Path::toFile)
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.epam.benchmark;
+
+import com.epam.model.AnalysisFinding;
+import com.epam.retrieval.KnowledgeBaseIndexer;
+import com.epam.retrieval.KnowledgeBaseSearcher;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks knowledge base detection in source code: the tag substring scan against
+ * the syntax-tree code pattern matcher used by KnowledgeBaseSearcher.searchInCode.
+ * Both run over the sample files, and their findings are checked against the hand-labeled
+ * issues in samples/expected-kb-findings.json to count false positives and misses.
+ * <p>
+ * Run: mvn exec:java -Dexec.mainClass=com.epam.benchmark.PatternDetectionBenchmark
+ */
+@SuppressWarnings("java:S106")
+public class PatternDetectionBenchmark {
+
+    private static final String KB_DIR = "src/main/resources/knowledgebase";
+    private static final String SAMPLES_DIR = "samples";
+    private static final String LABELS_FILE = "samples/expected-kb-findings.json";
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURE_ITERATIONS = 200;
+    private static final Pattern LOCATION = Pattern.compile("^(.+?):(\\d+) - ");
+
+    /** One detector under test. */
+    private interface Detector {
+        List<AnalysisFinding> detect(KnowledgeBaseSearcher searcher, String sourceCode, String fileName) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("\n" + "=".repeat(90));
+        System.out.println("Knowledge Base Detection Benchmark (tag substrings vs code patterns)");
+        System.out.println("=".repeat(90));
+
+        Map<String, String> sources = loadSamples();
+        Map<String, Map<String, List<Integer>>> labels =
+            new ObjectMapper().readValue(new File(LABELS_FILE), new TypeReference<>() { });
+        Set<String> expected = new HashSet<>();
+        labels.forEach((file, byTitle) -> byTitle.forEach((title, lines) ->
+            lines.forEach(line -> expected.add(key(file, title, line)))));
+        long bytes = sources.values().stream().mapToLong(String::length).sum();
+        System.out.printf("Samples: %d files, %d bytes, %d labeled issues%n", sources.size(), bytes, expected.size());
+        System.out.printf("Warmup: %d, measured: %d iterations over all files%n", WARMUP_ITERATIONS, MEASURE_ITERATIONS);
+
+        Path indexDir = Files.createTempDirectory("rag-detect-idx");
+        List<String[]> rows = new ArrayList<>();
+        try {
+            new KnowledgeBaseIndexer().indexKnowledgeBase(KB_DIR, indexDir.toString());
+            KnowledgeBaseSearcher searcher = new KnowledgeBaseSearcher(indexDir.toString());
+
+            rows.add(evaluate("Tag substrings", KnowledgeBaseSearcher::searchTagsInCode, searcher, sources, expected));
+            rows.add(evaluate("Code patterns", KnowledgeBaseSearcher::searchInCode, searcher, sources, expected));
+        } finally {
+            deleteDir(indexDir.toFile());
+        }
+
+        System.out.println();
+        System.out.printf("%-16s %-9s %-9s %-9s %-8s %-9s %-10s %-10s%n",
+            "Detector", "Findings", "True pos", "False pos", "Missed", "FP rate", "Files/s", "us/file");
+        System.out.println("-".repeat(90));
+        for (String[] row : rows) {
+            System.out.printf("%-16s %-9s %-9s %-9s %-8s %-9s %-10s %-10s%n", (Object[]) row);
+        }
+        System.out.println("=".repeat(90));
+    }
+
+    /**
+     * Checks one detector's findings against the labels, prints its false positives and
+     * misses, then measures its throughput.
+     */
+    private static String[] evaluate(String name, Detector detector, KnowledgeBaseSearcher searcher,
+                                     Map<String, String> sources, Set<String> expected) throws Exception {
+        Set<String> reported = new HashSet<>();
+        List<String> falsePositives = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            String[] lines = source.getValue().split("\n", -1);
+            for (AnalysisFinding finding : detector.detect(searcher, source.getValue(), source.getKey())) {
+                Matcher location = LOCATION.matcher(finding.details());
+                if (!location.find()) {
+                    throw new IllegalStateException("Finding without a location: " + finding.details());
+                }
+                int line = Integer.parseInt(location.group(2));
+                String key = key(source.getKey(), finding.issue(), line);
+                reported.add(key);
+                if (!expected.contains(key)) {
+                    falsePositives.add(key + "  | " + lines[line - 1].trim());
+                }
+            }
+        }
+        List<String> missed = expected.stream().filter(key -> !reported.contains(key)).sorted().toList();
+
+        System.out.println("\n" + name + ": " + falsePositives.size() + " false positives, " + missed.size() + " missed");
+        falsePositives.stream().sorted().forEach(fp -> System.out.println("  FP   " + fp));
+        missed.forEach(m -> System.out.println("  MISS " + m));
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            detectAll(detector, searcher, sources);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            detectAll(detector, searcher, sources);
+        }
+        double microsPerFile = (System.nanoTime() - start) / 1_000.0 / MEASURE_ITERATIONS / sources.size();
+
+        int findings = reported.size();
+        return new String[]{
+            name, String.valueOf(findings), String.valueOf(findings - falsePositives.size()),
+            String.valueOf(falsePositives.size()), String.valueOf(missed.size()),
+            findings == 0 ? "-" : String.format("%.0f%%", 100.0 * falsePositives.size() / findings),
+            String.format("%.0f", 1_000_000 / microsPerFile), String.format("%.1f", microsPerFile)
+        };
+    }
+
+    private static void detectAll(Detector detector, KnowledgeBaseSearcher searcher,
+                                  Map<String, String> sources) throws Exception {
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            detector.detect(searcher, source.getValue(), source.getKey());
+        }
+    }
+
+    private static Map<String, String> loadSamples() throws Exception {
+        Map<String, String> sources = new LinkedHashMap<>();
+        File[] javaFiles = new File(SAMPLES_DIR).listFiles((dir, name) -> name.endsWith(".java"));
+        if (javaFiles != null) {
+            Arrays.sort(javaFiles);
+            for (File file : javaFiles) {
+                sources.put(file.getName(), Files.readString(file.toPath()));
+            }
+        }
+        return sources;
+    }
+
+    private static String key(String file, String title, int line) {
+        return file + ":" + line + " " + title;
+    }
+
+    private static void deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) deleteDir(f);
+            }
+        }
+        dir.delete();
+    }
+}
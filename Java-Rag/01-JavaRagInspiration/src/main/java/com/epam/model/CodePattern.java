@@ -0,0 +1,63 @@
+package com.epam.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A code structure that a knowledge base entry applies to, matched against the syntax tree
+ * of the analyzed source instead of its text, so comments and string literals never match.
+ * <p>
+ * Declared in the "patterns" list of a knowledge base JSON file, for example:
+ * <pre>
+ * {"kind": "type", "name": "Vector"}
+ * {"kind": "call", "target": "Collections", "name": "synchronizedList"}
+ * {"kind": "call", "name": "size", "comparedTo": "0"}
+ * {"kind": "loop-concatenation"}
+ * </pre>
+ *
+ * @param kind       What to look for
+ * @param name       Simple type name or method name; not used by loop concatenation
+ * @param target     For calls, the identifier the method is called on (e.g., "Collections"), or null for any
+ * @param comparedTo For calls, an integer literal the result must be compared with, or null
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CodePattern(Kind kind, String name, String target, String comparedTo) {
+
+    /**
+     * Kinds of code structure a pattern can describe.
+     */
+    public enum Kind {
+        /** A type referenced in a declaration, instantiation, cast, generic argument or import. */
+        @JsonProperty("type") TYPE,
+        /** A method call, optionally on a given target and compared with a literal. */
+        @JsonProperty("call") CALL,
+        /** A String variable extended with + or += inside a for, while or do loop. */
+        @JsonProperty("loop-concatenation") LOOP_CONCATENATION
+    }
+
+    /**
+     * Validates the pattern when it is read from the knowledge base.
+     */
+    public CodePattern {
+        if (kind == null) {
+            throw new IllegalArgumentException("Code pattern needs a kind: type, call or loop-concatenation");
+        }
+        if (kind != Kind.LOOP_CONCATENATION && (name == null || name.isBlank())) {
+            throw new IllegalArgumentException("Code pattern of kind " + kind + " needs a name");
+        }
+    }
+
+    /**
+     * Describes the pattern for finding details, e.g. "Collections.synchronizedList()".
+     *
+     * @return Human-readable form of the pattern
+     */
+    public String describe() {
+        return switch (kind) {
+            case TYPE -> name;
+            case CALL -> (target != null ? target + "." : "") + name + "()"
+                + (comparedTo != null ? " compared to " + comparedTo : "");
+            case LOOP_CONCATENATION -> "string concatenation in a loop";
+        };
+    }
+}
@@ -13,6 +13,7 @@ public class KnowledgeEntry {
     private String example;
     private String reference;
     private List<String> tags;
+    private List<CodePattern> patterns;
 
     /**
      * Gets the title of the knowledge entry.
@@ -121,4 +122,22 @@ public class KnowledgeEntry {
     public void setTags(List<String> tags) { 
         this.tags = tags; 
     }
+
+    /**
+     * Gets the code structures the entry applies to, used to detect it in source code.
+     * 
+     * @return The entry patterns, or null if the entry declares none
+     */
+    public List<CodePattern> getPatterns() { 
+        return patterns; 
+    }
+
+    /**
+     * Sets the code structures the entry applies to.
+     * 
+     * @param patterns The entry patterns
+     */
+    public void setPatterns(List<CodePattern> patterns) { 
+        this.patterns = patterns; 
+    }
 }
\ No newline at end of file
@@ -0,0 +1,343 @@
+package com.epam.retrieval;
+
+import com.epam.model.AnalysisFinding;
+import com.epam.model.CodePattern;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.util.Bits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link CodePattern}s of every knowledge base entry, evaluated against the syntax tree
+ * of a source file in a single walk, whatever the number of entries and patterns.
+ * Only code is matched: a tag mentioned in a comment or a string literal is not a finding.
+ * <p>
+ * Types are matched by simple name and String variables by declared name, as far as a
+ * parser without symbol resolution can tell. Built once per index generation; instances
+ * are immutable and safe to share between threads.
+ */
+final class CodePatternMatcher {
+
+    private final long version;
+    private final List<String> titles;
+    /** Entry ids and patterns by type name. */
+    private final Map<String, List<EntryPattern>> typePatterns = new HashMap<>();
+    /** Entry ids and patterns by method name. */
+    private final Map<String, List<EntryPattern>> callPatterns = new HashMap<>();
+    private final List<EntryPattern> loopConcatenationPatterns = new ArrayList<>();
+
+    private record EntryPattern(int entryId, CodePattern pattern) {
+    }
+
+    /** An assignment in a loop that is a concatenation if its variable holds a String. */
+    private record Concatenation(String variable, boolean withStringLiteral, int line) {
+    }
+
+    private CodePatternMatcher(long version, List<String> titles, Map<Integer, List<CodePattern>> patternsByEntry) {
+        this.version = version;
+        this.titles = titles;
+        patternsByEntry.forEach((entryId, patterns) -> {
+            for (CodePattern pattern : patterns) {
+                EntryPattern entryPattern = new EntryPattern(entryId, pattern);
+                switch (pattern.kind()) {
+                    case TYPE -> typePatterns.computeIfAbsent(pattern.name(), k -> new ArrayList<>()).add(entryPattern);
+                    case CALL -> callPatterns.computeIfAbsent(pattern.name(), k -> new ArrayList<>()).add(entryPattern);
+                    case LOOP_CONCATENATION -> loopConcatenationPatterns.add(entryPattern);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the patterns of all live documents of an index. Documents with the same title
+     * are one entry, so an index holding an entry twice does not report it twice.
+     *
+     * @param reader Reader over the knowledge base index
+     * @return Matcher for the reader's index generation
+     * @throws IOException If stored fields cannot be read or hold malformed patterns
+     */
+    static CodePatternMatcher fromIndex(DirectoryReader reader) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Integer> entryIds = new LinkedHashMap<>();
+        Map<Integer, List<CodePattern>> patternsByEntry = new LinkedHashMap<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leaf = context.reader();
+            Bits liveDocs = leaf.getLiveDocs();
+            StoredFields storedFields = leaf.storedFields();
+            for (int docId = 0; docId < leaf.maxDoc(); docId++) {
+                if (liveDocs != null && !liveDocs.get(docId)) {
+                    continue;
+                }
+                Document doc = storedFields.document(docId);
+                String title = doc.get("title");
+                String patterns = doc.get(KnowledgeBaseIndexer.PATTERNS_FIELD);
+                if (title == null || patterns == null || entryIds.containsKey(title)) {
+                    continue;
+                }
+                int entryId = entryIds.size();
+                entryIds.put(title, entryId);
+                patternsByEntry.put(entryId, List.of(mapper.readValue(patterns, CodePattern[].class)));
+            }
+        }
+        return new CodePatternMatcher(reader.getVersion(), List.copyOf(entryIds.keySet()), patternsByEntry);
+    }
+
+    /**
+     * @return Version of the index the matcher was built from
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * @return Titles of the entries that declare patterns, and so are detected by this matcher
+     */
+    Set<String> titles() {
+        return Set.copyOf(titles);
+    }
+
+    /**
+     * Finds every line where a knowledge base pattern occurs. Each entry is reported once
+     * per line, with the first of its patterns found on that line.
+     *
+     * @param sourceCode Java source code to scan
+     * @param fileName File name used in the finding details and parse errors
+     * @return Findings grouped by entry in index order, each entry's lines in ascending order
+     * @throws CheckstyleException If the source code cannot be parsed
+     */
+    List<AnalysisFinding> scan(String sourceCode, String fileName) throws CheckstyleException {
+        FileText fileText = new FileText(new File(fileName), sourceCode.lines().toList());
+        DetailAST root = JavaParser.parseFileText(fileText, JavaParser.Options.WITHOUT_COMMENTS);
+
+        List<Map<Integer, CodePattern>> patternByLine = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            patternByLine.add(new LinkedHashMap<>());
+        }
+        // Fields may be declared after the methods using them, so loop assignments are
+        // resolved against the String variables once the whole tree has been seen
+        Set<String> stringVariables = new HashSet<>();
+        List<Concatenation> concatenations = new ArrayList<>();
+
+        for (DetailAST node = root; node != null; node = next(node)) {
+            switch (node.getType()) {
+                case TokenTypes.IDENT -> {
+                    List<EntryPattern> candidates = typePatterns.get(node.getText());
+                    if (candidates != null && isTypeReference(node)) {
+                        int line = node.getLineNo();
+                        candidates.forEach(c -> report(patternByLine, c, line));
+                    }
+                }
+                case TokenTypes.METHOD_CALL -> matchCall(node, patternByLine);
+                case TokenTypes.VARIABLE_DEF, TokenTypes.PARAMETER_DEF -> {
+                    if (!loopConcatenationPatterns.isEmpty() && isStringDeclaration(node)) {
+                        stringVariables.add(node.findFirstToken(TokenTypes.IDENT).getText());
+                    }
+                }
+                case TokenTypes.PLUS_ASSIGN, TokenTypes.ASSIGN -> {
+                    if (!loopConcatenationPatterns.isEmpty()) {
+                        Concatenation concatenation = concatenationInLoop(node);
+                        if (concatenation != null) {
+                            concatenations.add(concatenation);
+                        }
+                    }
+                }
+                default -> {
+                    // Not part of any pattern
+                }
+            }
+        }
+        for (Concatenation concatenation : concatenations) {
+            if (concatenation.withStringLiteral() || stringVariables.contains(concatenation.variable())) {
+                loopConcatenationPatterns.forEach(c -> report(patternByLine, c, concatenation.line()));
+            }
+        }
+
+        List<AnalysisFinding> findings = new ArrayList<>();
+        for (int entryId = 0; entryId < titles.size(); entryId++) {
+            String title = titles.get(entryId);
+            patternByLine.get(entryId).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> findings.add(new AnalysisFinding(
+                    title,
+                    fileName + ":" + e.getKey() + " - Knowledge base pattern '" + e.getValue().describe()
+                        + "' detected in code."
+                )));
+        }
+        return findings;
+    }
+
+    private static void report(List<Map<Integer, CodePattern>> patternByLine, EntryPattern match, int line) {
+        patternByLine.get(match.entryId()).putIfAbsent(line, match.pattern());
+    }
+
+    /**
+     * @return The node after the given one in a pre-order walk, or null at the end of the tree
+     */
+    private static DetailAST next(DetailAST node) {
+        if (node.getFirstChild() != null) {
+            return node.getFirstChild();
+        }
+        for (DetailAST current = node; current != null; current = current.getParent()) {
+            if (current.getNextSibling() != null) {
+                return current.getNextSibling();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether an identifier names a type, as opposed to a variable, method or package.
+     * The last segment of a qualified name such as java.util.Vector counts as the type.
+     */
+    private static boolean isTypeReference(DetailAST ident) {
+        DetailAST node = ident;
+        DetailAST parent = node.getParent();
+        while (parent != null && parent.getType() == TokenTypes.DOT && node.getPreviousSibling() != null) {
+            node = parent;
+            parent = parent.getParent();
+        }
+        if (parent == null) {
+            return false;
+        }
+        return switch (parent.getType()) {
+            case TokenTypes.TYPE, TokenTypes.LITERAL_NEW, TokenTypes.TYPE_ARGUMENT, TokenTypes.IMPORT,
+                 TokenTypes.STATIC_IMPORT, TokenTypes.EXTENDS_CLAUSE, TokenTypes.IMPLEMENTS_CLAUSE,
+                 TokenTypes.TYPE_UPPER_BOUNDS, TokenTypes.TYPE_LOWER_BOUNDS, TokenTypes.ARRAY_DECLARATOR -> true;
+            default -> false;
+        };
+    }
+
+    private void matchCall(DetailAST call, List<Map<Integer, CodePattern>> patternByLine) {
+        DetailAST callee = call.getFirstChild();
+        String name;
+        String target = null;
+        if (callee.getType() == TokenTypes.IDENT) {
+            name = callee.getText();
+        } else if (callee.getType() == TokenTypes.DOT && callee.getLastChild().getType() == TokenTypes.IDENT) {
+            name = callee.getLastChild().getText();
+            DetailAST qualifier = callee.getFirstChild();
+            if (qualifier.getType() == TokenTypes.DOT) {
+                qualifier = qualifier.getLastChild();
+            }
+            if (qualifier.getType() == TokenTypes.IDENT) {
+                target = qualifier.getText();
+            }
+        } else {
+            return;
+        }
+        List<EntryPattern> candidates = callPatterns.get(name);
+        if (candidates == null) {
+            return;
+        }
+        for (EntryPattern candidate : candidates) {
+            CodePattern pattern = candidate.pattern();
+            if ((pattern.target() == null || pattern.target().equals(target))
+                    && (pattern.comparedTo() == null || isComparedTo(call, pattern.comparedTo()))) {
+                report(patternByLine, candidate, call.getLineNo());
+            }
+        }
+    }
+
+    /**
+     * Tells whether an expression is an operand of a comparison whose other operand is the given literal.
+     */
+    private static boolean isComparedTo(DetailAST expression, String literal) {
+        DetailAST comparison = expression.getParent();
+        switch (comparison.getType()) {
+            case TokenTypes.EQUAL, TokenTypes.NOT_EQUAL, TokenTypes.LT, TokenTypes.LE, TokenTypes.GT, TokenTypes.GE -> {
+                DetailAST other = expression.getPreviousSibling() != null
+                    ? expression.getPreviousSibling() : expression.getNextSibling();
+                return other != null && (other.getType() == TokenTypes.NUM_INT || other.getType() == TokenTypes.NUM_LONG)
+                    && other.getText().replaceAll("[lL_]", "").equals(literal);
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static boolean isStringDeclaration(DetailAST declaration) {
+        DetailAST type = declaration.findFirstToken(TokenTypes.TYPE);
+        return type != null && type.getFirstChild() != null
+            && type.getFirstChild().getType() == TokenTypes.IDENT && type.getFirstChild().getText().equals("String");
+    }
+
+    /**
+     * Recognizes {@code s += ...} and {@code s = s + ...} inside a loop of the same method.
+     *
+     * @return The candidate concatenation, or null if the assignment is not one
+     */
+    private static Concatenation concatenationInLoop(DetailAST assignment) {
+        DetailAST variable = assignment.getFirstChild();
+        // A declaration's initializer is an ASSIGN whose first child is the expression
+        if (variable == null || variable.getType() != TokenTypes.IDENT || assignment.getParent().getType() != TokenTypes.EXPR) {
+            return null;
+        }
+        DetailAST value = variable.getNextSibling();
+        if (assignment.getType() == TokenTypes.ASSIGN) {
+            DetailAST leftmost = value;
+            while (leftmost.getType() == TokenTypes.PLUS) {
+                leftmost = leftmost.getFirstChild();
+            }
+            if (value.getType() != TokenTypes.PLUS || leftmost.getType() != TokenTypes.IDENT
+                    || !leftmost.getText().equals(variable.getText())) {
+                return null;
+            }
+        }
+        if (!isInLoop(assignment)) {
+            return null;
+        }
+        return new Concatenation(variable.getText(), containsStringLiteral(value), assignment.getLineNo());
+    }
+
+    private static boolean isInLoop(DetailAST node) {
+        for (DetailAST parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            switch (parent.getType()) {
+                case TokenTypes.LITERAL_FOR, TokenTypes.LITERAL_WHILE, TokenTypes.LITERAL_DO -> {
+                    return true;
+                }
+                case TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF, TokenTypes.LAMBDA, TokenTypes.OBJBLOCK -> {
+                    return false;
+                }
+                default -> {
+                    // Keep looking in the enclosing statement
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsStringLiteral(DetailAST expression) {
+        if (expression.getType() == TokenTypes.STRING_LITERAL || expression.getType() == TokenTypes.TEXT_BLOCK_LITERAL_BEGIN) {
+            return true;
+        }
+        // Only the operands of + build the string; literals inside method arguments do not count
+        if (expression.getType() != TokenTypes.PLUS) {
+            return false;
+        }
+        for (DetailAST child = expression.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (containsStringLiteral(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
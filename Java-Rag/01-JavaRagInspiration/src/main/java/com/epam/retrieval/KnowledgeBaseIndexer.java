@@ -6,6 +6,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
@@ -22,6 +23,9 @@ import java.nio.file.Paths;
  */
 public class KnowledgeBaseIndexer {
 
+    /** Stored-only field holding the entry's code patterns as a JSON array. */
+    static final String PATTERNS_FIELD = "patterns";
+
     /**
      * Indexes all JSON knowledge base files from a directory into a Lucene index.
      * 
@@ -67,6 +71,9 @@ public class KnowledgeBaseIndexer {
         doc.add(new TextField("example", entry.getExample(), Field.Store.YES));
         doc.add(new StringField("reference", entry.getReference(), Field.Store.YES));
         doc.add(new TextField("tags", String.join(" ", entry.getTags()), Field.Store.YES));
+        if (entry.getPatterns() != null && !entry.getPatterns().isEmpty()) {
+            doc.add(new StoredField(PATTERNS_FIELD, mapper.writeValueAsString(entry.getPatterns())));
+        }
         
         writer.addDocument(doc);
     }
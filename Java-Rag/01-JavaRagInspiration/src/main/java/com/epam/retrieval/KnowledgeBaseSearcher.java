@@ -2,13 +2,16 @@ package com.epam.retrieval;
 
 import com.epam.model.AnalysisFinding;
 import com.epam.model.KnowledgeEntry;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -16,10 +19,20 @@ import java.util.stream.Collectors;
 /**
  * Searches the indexed knowledge base for entries relevant to analysis findings.
  * Uses Lucene to perform fast text-based searches across knowledge entries.
+ * <p>
+ * Source code is matched against the code patterns that knowledge base entries declare
+ * ({@link CodePatternMatcher}), and against the tags of entries declaring none
+ * ({@link TagMatcher}). Both matchers are built once per index generation and reused for
+ * every file, so reuse one searcher for a batch.
  */
 public class KnowledgeBaseSearcher {
     private final String indexDirPath;
     private final Map<String, Set<String>> patternCache = new HashMap<>();
+    private volatile CodeMatchers codeMatchers;
+
+    /** Matchers built from the same index generation. */
+    private record CodeMatchers(TagMatcher tags, CodePatternMatcher patterns, boolean tagsOnlyEntries) {
+    }
 
     /**
      * Creates a new knowledge base searcher.
@@ -32,54 +45,63 @@ public class KnowledgeBaseSearcher {
 
     /**
      * Searches for knowledge entries that match patterns in the provided source code.
+     * Entries declaring code patterns are found in the syntax tree, so mentions in comments
+     * and string literals do not count; entries without patterns are found by their tags.
+     * If the code does not parse, every entry is found by its tags.
+     * Every matching line is reported, once per entry and line.
      * 
      * @param sourceCode The Java source code to analyze
      * @param fileName The name of the file being analyzed
      * @return List of findings based on knowledge base patterns
      */
     public List<AnalysisFinding> searchInCode(String sourceCode, String fileName) throws Exception {
-        List<AnalysisFinding> findings = new ArrayList<>();
-        
-        Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
-        try (DirectoryReader reader = DirectoryReader.open(indexDir)) {
-            IndexSearcher searcher = new IndexSearcher(reader);
-            
-            Query query = new MatchAllDocsQuery();
-            TopDocs topDocs = searcher.search(query, Integer.MAX_VALUE);
-            
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                Document doc = searcher.doc(scoreDoc.doc);
-                String tags = doc.get("tags");
-                String title = doc.get("title");
-                
-                if (tags != null) {
-                    String[] tagArray = tags.split(" ");
-                    for (String tag : tagArray) {
-                        if (tag.length() > 3 && sourceCode.toLowerCase().contains(tag.toLowerCase())) {
-                            // Find line number
-                            int lineNum = findLineNumber(sourceCode, tag);
-                            findings.add(new AnalysisFinding(
-                                title,
-                                fileName + ":" + lineNum + " - Knowledge base pattern '" + tag + "' detected in code."
-                            ));
-                            break; // Avoid multiple findings for the same entry
-                        }
-                    }
-                }
-            }
+        CodeMatchers matchers = codeMatchers();
+        List<AnalysisFinding> findings;
+        try {
+            findings = matchers.patterns().scan(sourceCode, fileName);
+        } catch (CheckstyleException e) {
+            System.err.println("Warning: Could not parse " + fileName + ", matching tags instead: " + e.getMessage());
+            return matchers.tags().scan(sourceCode, fileName);
+        }
+        if (matchers.tagsOnlyEntries()) {
+            Set<String> detected = matchers.patterns().titles();
+            matchers.tags().scan(sourceCode, fileName).stream()
+                .filter(finding -> !detected.contains(finding.issue()))
+                .forEach(findings::add);
         }
-        
         return findings;
     }
 
-    private int findLineNumber(String sourceCode, String pattern) {
-        String[] lines = sourceCode.split("\r?\n");
-        for (int i = 0; i < lines.length; i++) {
-            if (lines[i].toLowerCase().contains(pattern.toLowerCase())) {
-                return i + 1;
+    /**
+     * Finds every line of the source code where a knowledge base tag occurs, ignoring case,
+     * whether in code, comments or string literals. This is the plain substring scan that
+     * {@link #searchInCode(String, String)} falls back to for code that does not parse.
+     * 
+     * @param sourceCode The source code to scan
+     * @param fileName The name of the file being analyzed
+     * @return Findings for every entry whose tag occurs, once per entry and line
+     */
+    public List<AnalysisFinding> searchTagsInCode(String sourceCode, String fileName) throws Exception {
+        return codeMatchers().tags().scan(sourceCode, fileName);
+    }
+
+    /**
+     * Returns the matchers for the latest index commit, rebuilding them only when the
+     * index changed since they were built.
+     */
+    private CodeMatchers codeMatchers() throws IOException {
+        try (Directory indexDir = FSDirectory.open(Paths.get(indexDirPath))) {
+            CodeMatchers current = codeMatchers;
+            if (current == null || current.tags().version() != SegmentInfos.readLatestCommit(indexDir).getVersion()) {
+                try (DirectoryReader reader = DirectoryReader.open(indexDir)) {
+                    TagMatcher tags = TagMatcher.fromIndex(reader);
+                    CodePatternMatcher patterns = CodePatternMatcher.fromIndex(reader);
+                    current = new CodeMatchers(tags, patterns, !patterns.titles().containsAll(tags.titles()));
+                }
+                codeMatchers = current;
             }
+            return current;
         }
-        return 1;
     }
 
     /**
@@ -0,0 +1,42 @@
+package com.epam.retrieval;
+
+import java.util.Arrays;
+
+/**
+ * Start offsets of the lines of a text, so the line of any character offset is found
+ * by binary search instead of re-splitting the text.
+ */
+final class LineOffsets {
+
+    private final int[] starts;
+    private final int lineCount;
+
+    /**
+     * Records where each line starts; lines end at '\n', so "\r\n" endings work too.
+     *
+     * @param text Text to index
+     */
+    LineOffsets(CharSequence text) {
+        int[] offsets = new int[16];
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = i + 1;
+            }
+        }
+        this.starts = offsets;
+        this.lineCount = count;
+    }
+
+    /**
+     * @param offset Character offset in the text
+     * @return 1-based number of the line containing the offset
+     */
+    int lineNumber(int offset) {
+        int index = Arrays.binarySearch(starts, 0, lineCount, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,140 @@
+package com.epam.retrieval;
+
+import com.epam.model.AnalysisFinding;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tags of every knowledge base entry compiled into one {@link AhoCorasick} automaton,
+ * built once per index generation. Scanning a source file is a single pass over its
+ * lower-cased text, whatever the number of entries and tags.
+ * Instances are immutable and safe to share between threads.
+ */
+final class TagMatcher {
+
+    /** Tags this short match inside too many unrelated words. */
+    private static final int MIN_TAG_LENGTH = 4;
+
+    private final long version;
+    private final AhoCorasick automaton;
+    private final List<String> titles;
+    /** Tag spelling as written in the knowledge base, per keyword id. */
+    private final List<String> tags;
+    /** Ids of the entries (indexes into {@link #titles}) having each keyword. */
+    private final List<int[]> entriesByTag;
+
+    private TagMatcher(long version, List<String> titles, Map<String, Set<Integer>> entriesByKeyword,
+                       Map<String, String> spellings) {
+        this.version = version;
+        this.titles = titles;
+        List<String> keywords = new ArrayList<>(entriesByKeyword.keySet());
+        this.automaton = new AhoCorasick(keywords);
+        this.tags = keywords.stream().map(spellings::get).toList();
+        this.entriesByTag = keywords.stream()
+            .map(keyword -> entriesByKeyword.get(keyword).stream().mapToInt(Integer::intValue).toArray())
+            .toList();
+    }
+
+    /**
+     * Compiles the tags of all live documents of an index. Documents with the same title
+     * are one entry, so an index holding an entry twice does not report it twice.
+     *
+     * @param reader Reader over the knowledge base index
+     * @return Matcher for the reader's index generation
+     * @throws IOException If stored fields cannot be read
+     */
+    static TagMatcher fromIndex(DirectoryReader reader) throws IOException {
+        Map<String, Integer> entryIds = new LinkedHashMap<>();
+        Map<String, Set<Integer>> entriesByKeyword = new LinkedHashMap<>();
+        Map<String, String> spellings = new HashMap<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leaf = context.reader();
+            Bits liveDocs = leaf.getLiveDocs();
+            StoredFields storedFields = leaf.storedFields();
+            for (int docId = 0; docId < leaf.maxDoc(); docId++) {
+                if (liveDocs != null && !liveDocs.get(docId)) {
+                    continue;
+                }
+                Document doc = storedFields.document(docId);
+                String title = doc.get("title");
+                String tags = doc.get("tags");
+                if (title == null || tags == null) {
+                    continue;
+                }
+                int entryId = entryIds.computeIfAbsent(title, t -> entryIds.size());
+                for (String tag : tags.split(" ")) {
+                    if (tag.length() >= MIN_TAG_LENGTH) {
+                        String keyword = tag.toLowerCase(Locale.ROOT);
+                        entriesByKeyword.computeIfAbsent(keyword, k -> new LinkedHashSet<>()).add(entryId);
+                        spellings.putIfAbsent(keyword, tag);
+                    }
+                }
+            }
+        }
+        return new TagMatcher(reader.getVersion(), List.copyOf(entryIds.keySet()), entriesByKeyword, spellings);
+    }
+
+    /**
+     * @return Version of the index the matcher was built from
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * @return Titles of the entries having tags
+     */
+    List<String> titles() {
+        return titles;
+    }
+
+    /**
+     * Finds every line where a knowledge base tag occurs, ignoring case. Each entry is
+     * reported once per line, with the first of its tags found on that line.
+     *
+     * @param sourceCode Source code to scan
+     * @param fileName File name used in the finding details
+     * @return Findings grouped by entry in index order, each entry's lines in ascending order
+     */
+    List<AnalysisFinding> scan(String sourceCode, String fileName) {
+        // Lower-casing may change the length, so lines are located in the text actually scanned
+        String text = sourceCode.toLowerCase(Locale.ROOT);
+        LineOffsets lines = new LineOffsets(text);
+
+        List<Map<Integer, String>> tagByLine = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            tagByLine.add(new LinkedHashMap<>());
+        }
+        automaton.match(text, (keywordId, end) -> {
+            String tag = tags.get(keywordId);
+            int line = lines.lineNumber(end - tag.length());
+            for (int entryId : entriesByTag.get(keywordId)) {
+                tagByLine.get(entryId).putIfAbsent(line, tag);
+            }
+        });
+
+        List<AnalysisFinding> findings = new ArrayList<>();
+        for (int entryId = 0; entryId < titles.size(); entryId++) {
+            String title = titles.get(entryId);
+            tagByLine.get(entryId).forEach((line, tag) -> findings.add(new AnalysisFinding(
+                title,
+                fileName + ":" + line + " - Knowledge base pattern '" + tag + "' detected in code."
+            )));
+        }
+        return findings;
+    }
+}
@@ -0,0 +1,39 @@
+package com.epam.analysis;
+
+import com.epam.model.AnalysisFinding;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A static analysis engine that can take part in a {@link StaticAnalysisPipeline}.
+ * Implementations are configured up front (rules, config files) and must be safe
+ * to call from several threads at once. A failed analysis must be thrown rather than
+ * returned as an error finding, so the pipeline can keep it out of cached results.
+ */
+public interface Analyzer {
+
+    /**
+     * @return Short engine name used in logs and error findings, e.g. "Checkstyle"
+     */
+    String name();
+
+    /**
+     * Analyzes a Java source file.
+     *
+     * @param javaFile The Java source file to analyze
+     * @return Findings discovered by this engine
+     * @throws Exception If the engine fails; the pipeline reports it as an error finding
+     */
+    List<AnalysisFinding> analyze(File javaFile) throws Exception;
+
+    /**
+     * Analyzes Java source code held in memory, without reading or writing any file.
+     *
+     * @param fileName Name reported for the code; must end in .java
+     * @param code Java source code
+     * @return Findings discovered by this engine
+     * @throws Exception If the engine fails; the pipeline reports it as an error finding
+     */
+    List<AnalysisFinding> analyzeSource(String fileName, String code) throws Exception;
+}
@@ -7,76 +7,358 @@ import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.PropertiesExpander;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Integrates Checkstyle static analysis tool to analyze Java code and collect findings.
  * Runs Checkstyle rules against Java files and converts results to AnalysisFinding objects.
+ * <p>
+ * Loading the XML configuration and instantiating the checks is the expensive part of a run,
+ * so configured {@link Checker} instances are pooled per configuration file and reused by
+ * later analyses on any thread. A pool is replaced when its configuration file changes.
+ * <p>
+ * Source code can also be analyzed straight from memory, in which case nothing is read
+ * from or written to disk.
+ * <p>
+ * Used as an {@link Analyzer}, a failed analysis is thrown; the methods taking a configuration
+ * file report it as a "Checkstyle Analysis Error" finding instead.
  */
-public class CheckstyleAnalyzer {
+public class CheckstyleAnalyzer implements Analyzer {
+
+    /** Pools of configured checkers by absolute configuration file path, shared by all instances. */
+    private static final Map<String, CheckerPool> POOLS = new ConcurrentHashMap<>();
+
+    private final File configFile;
+
+    /**
+     * Creates an analyzer that is given the configuration file on each call.
+     */
+    public CheckstyleAnalyzer() {
+        this(null);
+    }
+
+    /**
+     * Creates an analyzer bound to a configuration file, for use as an {@link Analyzer}.
+     *
+     * @param configFile The Checkstyle configuration file containing rules
+     */
+    public CheckstyleAnalyzer(File configFile) {
+        this.configFile = configFile;
+    }
+
+    @Override
+    public String name() {
+        return "Checkstyle";
+    }
+
+    /**
+     * Analyzes a Java file using the configuration file given at construction.
+     *
+     * @param javaFile The Java source file to analyze
+     * @return List of analysis findings discovered by Checkstyle
+     * @throws Exception If the file cannot be read or Checkstyle fails on it
+     */
+    @Override
+    public List<AnalysisFinding> analyze(File javaFile) throws Exception {
+        return audit(javaFile.getAbsolutePath(), Files.readAllLines(javaFile.toPath()),
+            Objects.requireNonNull(configFile, "No Checkstyle configuration file"));
+    }
+
+    /**
+     * Analyzes in-memory source code using the configuration file given at construction.
+     *
+     * @param fileName Name reported for the code; must end in .java
+     * @param code Java source code
+     * @return List of analysis findings discovered by Checkstyle
+     * @throws CheckstyleException If the configuration cannot be loaded or Checkstyle fails on the code
+     */
+    @Override
+    public List<AnalysisFinding> analyzeSource(String fileName, String code) throws CheckstyleException {
+        return audit(fileName, code.lines().toList(),
+            Objects.requireNonNull(configFile, "No Checkstyle configuration file"));
+    }
+
+    /**
+     * Analyzes in-memory source code using Checkstyle rules, without touching the file system.
+     * A failure is reported as a single "Checkstyle Analysis Error" finding.
+     *
+     * @param fileName Name reported for the code; must end in .java
+     * @param code Java source code
+     * @param configFile The Checkstyle configuration file containing rules
+     * @return List of analysis findings discovered by Checkstyle
+     */
+    public List<AnalysisFinding> analyzeSource(String fileName, String code, File configFile) {
+        try {
+            return audit(fileName, code.lines().toList(), configFile);
+        } catch (Exception e) {
+            List<AnalysisFinding> findings = new ArrayList<>();
+            findings.add(new AnalysisFinding(
+                "Checkstyle Analysis Error",
+                "Could not analyze " + fileName + ": " + e.getMessage()
+            ));
+            return findings;
+        }
+    }
+
+    /**
+     * Runs a pooled checker over source lines held in memory.
+     */
+    private static List<AnalysisFinding> audit(String fileName, List<String> lines, File configFile)
+            throws CheckstyleException {
+        List<AnalysisFinding> findings = new ArrayList<>();
+        CheckerPool pool = pool(configFile);
+        PooledChecker checker = pool.borrow();
+        try {
+            checker.findings = new HashMap<>(Map.of(fileName, findings));
+            checker.checker.processSource(fileName, lines);
+            checker.findings = null;
+            pool.giveBack(checker);
+        } catch (CheckstyleException | RuntimeException e) {
+            // A checker that failed mid-audit is not reused
+            checker.checker.destroy();
+            throw e;
+        }
+        return findings;
+    }
 
     /**
      * Analyzes a Java file using Checkstyle rules and returns findings.
-     * 
+     *
      * @param javaFile The Java source file to analyze
      * @param configFile The Checkstyle configuration file containing rules
      * @return List of analysis findings discovered by Checkstyle
      * @throws Exception If analysis fails due to configuration or file issues
      */
     public List<AnalysisFinding> analyze(File javaFile, File configFile) throws Exception {
-        List<AnalysisFinding> findings = new ArrayList<>();
-        
+        return analyzeAll(List.of(javaFile), configFile).get(javaFile);
+    }
+
+    /**
+     * Analyzes all Java files under a directory (or a single file) in one Checkstyle run.
+     *
+     * @param fileOrDirectory A Java source file or a directory searched recursively
+     * @param configFile The Checkstyle configuration file containing rules
+     * @return Findings per file, in path order
+     * @throws Exception If the directory cannot be listed
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(File fileOrDirectory, File configFile) throws Exception {
+        return analyzeAll(SourceFiles.javaFiles(fileOrDirectory), configFile);
+    }
+
+    /**
+     * Analyzes several Java files in a single {@link Checker#process(List)} call, so the checker
+     * is set up once for the whole batch. A file that cannot be parsed gets a "Checkstyle
+     * Analysis Error" finding and does not affect the findings of the other files.
+     *
+     * @param javaFiles The Java source files to analyze
+     * @param configFile The Checkstyle configuration file containing rules
+     * @return Findings per file in the order given; every file has an entry, possibly empty
+     * @throws Exception If analysis fails due to configuration or file issues
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(List<File> javaFiles, File configFile) throws Exception {
+        Map<File, List<AnalysisFinding>> findingsByFile = new LinkedHashMap<>();
+        Map<String, List<AnalysisFinding>> findingsByPath = new HashMap<>();
+        for (File javaFile : javaFiles) {
+            List<AnalysisFinding> findings = new ArrayList<>();
+            findingsByFile.put(javaFile, findings);
+            findingsByPath.put(javaFile.getAbsolutePath(), findings);
+        }
+
         try {
-            // Load Checkstyle configuration
-            Configuration config = ConfigurationLoader.loadConfiguration(
-                configFile.getAbsolutePath(),
-                new PropertiesExpander(System.getProperties()),
-                ConfigurationLoader.IgnoredModulesOptions.OMIT
-            );
-            
-            // Create and configure a Checkstyle checker
-            Checker checker = new Checker();
+            CheckerPool pool = pool(configFile);
+            PooledChecker checker = pool.borrow();
+            try {
+                checker.findings = findingsByPath;
+                // Process all Java files in one audit
+                checker.checker.process(new ArrayList<>(javaFiles));
+                checker.findings = null;
+                pool.giveBack(checker);
+            } catch (Exception e) {
+                // A checker that failed mid-audit is not reused
+                checker.checker.destroy();
+                throw e;
+            }
+
+        } catch (Exception e) {
+            findingsByFile.forEach((javaFile, findings) -> findings.add(new AnalysisFinding(
+                "Checkstyle Analysis Error",
+                "Could not analyze " + javaFile.getName() + ": " + e.getMessage()
+            )));
+        }
+
+        return findingsByFile;
+    }
+
+    /**
+     * Returns the checker pool for a configuration file, reloading it if the file changed.
+     */
+    private static CheckerPool pool(File configFile) {
+        String path = configFile.getAbsolutePath();
+        long mtime = configFile.lastModified();
+        CheckerPool pool = POOLS.get(path);
+        if (pool != null && pool.mtime == mtime) {
+            return pool;
+        }
+        CheckerPool fresh = POOLS.compute(path, (key, current) ->
+            current != null && current.mtime == mtime ? current : new CheckerPool(path, mtime));
+        if (pool != null && pool != fresh) {
+            pool.destroyIdle();
+        }
+        return fresh;
+    }
+
+    /**
+     * Idle checkers configured from one version of a configuration file.
+     */
+    private static final class CheckerPool {
+        private final String path;
+        private final long mtime;
+        private final Queue<PooledChecker> idle = new ConcurrentLinkedQueue<>();
+        private volatile Configuration config;
+
+        private CheckerPool(String path, long mtime) {
+            this.path = path;
+            this.mtime = mtime;
+        }
+
+        private PooledChecker borrow() throws CheckstyleException {
+            PooledChecker checker = idle.poll();
+            return checker != null ? checker : new PooledChecker(configuration());
+        }
+
+        private void giveBack(PooledChecker checker) {
+            if (POOLS.get(path) == this) {
+                idle.offer(checker);
+            } else {
+                checker.checker.destroy();
+            }
+        }
+
+        private void destroyIdle() {
+            PooledChecker checker;
+            while ((checker = idle.poll()) != null) {
+                checker.checker.destroy();
+            }
+        }
+
+        /**
+         * Parses the configuration once per pool; concurrent first users may parse it twice.
+         */
+        private Configuration configuration() throws CheckstyleException {
+            Configuration loaded = config;
+            if (loaded == null) {
+                // Load Checkstyle configuration
+                loaded = ConfigurationLoader.loadConfiguration(
+                    path,
+                    new PropertiesExpander(System.getProperties()),
+                    ConfigurationLoader.IgnoredModulesOptions.OMIT
+                );
+                config = loaded;
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * A configured checker whose listener reports into the findings lists of the current analysis,
+     * keyed by absolute file path, or by the given name for in-memory source.
+     */
+    private static final class PooledChecker {
+        private final SourceChecker checker = new SourceChecker();
+        private Map<String, List<AnalysisFinding>> findings;
+
+        private PooledChecker(Configuration config) throws CheckstyleException {
+            // Create and configure a Checkstyle checker; a file that cannot be checked is
+            // reported as an error for that file instead of ending the audit
             checker.setModuleClassLoader(Checker.class.getClassLoader());
+            checker.setHaltOnException(false);
             checker.configure(config);
 
             // Add listener to collect audit events as findings
             checker.addListener(new AuditListener() {
                 @Override
                 public void auditStarted(AuditEvent event) {}
-                
+
                 @Override
                 public void auditFinished(AuditEvent event) {}
-                
+
                 @Override
                 public void fileStarted(AuditEvent event) {}
-                
+
                 @Override
                 public void fileFinished(AuditEvent event) {}
-                
+
                 @Override
                 public void addError(AuditEvent event) {
-                    findings.add(new AnalysisFinding(
-                        event.getViolation().getKey(), 
-                        event.getFileName() + ":" + event.getLine() + " - " + event.getMessage()
-                    ));
+                    findings.computeIfAbsent(event.getFileName(), k -> new ArrayList<>()).add(toFinding(event));
                 }
-                
+
                 @Override
                 public void addException(AuditEvent event, Throwable throwable) {}
             });
+        }
+    }
 
-            // Process the Java file
-            checker.process(List.of(javaFile));
-            checker.destroy();
-            
-        } catch (Exception e) {
-            findings.add(new AnalysisFinding(
-                "Checkstyle Analysis Error", 
-                "Could not analyze " + javaFile.getName() + ": " + e.getMessage()
-            ));
+    private static AnalysisFinding toFinding(AuditEvent event) {
+        if (Checker.EXCEPTION_MSG.equals(event.getViolation().getKey())) {
+            // The message holds the whole stack trace; its first line names the exception
+            return new AnalysisFinding(
+                "Checkstyle Analysis Error",
+                "Could not analyze " + new File(event.getFileName()).getName() + ": "
+                    + event.getMessage().lines().findFirst().orElse("")
+            );
+        }
+        return new AnalysisFinding(
+            event.getViolation().getKey(),
+            event.getFileName() + ":" + event.getLine() + " - " + event.getMessage()
+        );
+    }
+
+    /**
+     * A checker that can also audit source text held in memory. {@link Checker} only reads
+     * files from disk, so this keeps its own reference to the configured file set checks and
+     * runs them the same way {@link Checker#process(List)} does for a single file.
+     */
+    private static final class SourceChecker extends Checker {
+        private final List<FileSetCheck> fileSetChecks = new ArrayList<>();
+
+        @Override
+        public void addFileSetCheck(FileSetCheck fileSetCheck) {
+            super.addFileSetCheck(fileSetCheck);
+            fileSetChecks.add(fileSetCheck);
+        }
+
+        private void processSource(String fileName, List<String> lines) throws CheckstyleException {
+            File file = new File(fileName);
+            FileText text = new FileText(file, lines);
+            fileSetChecks.forEach(check -> check.beginProcessing(StandardCharsets.UTF_8.name()));
+
+            fireFileStarted(fileName);
+            SortedSet<Violation> violations = new TreeSet<>();
+            try {
+                for (FileSetCheck check : fileSetChecks) {
+                    violations.addAll(check.process(file, text));
+                }
+            } catch (Exception e) {
+                throw new CheckstyleException("Exception was thrown while processing " + fileName, e);
+            }
+            fireErrors(fileName, violations);
+            fireFileFinished(fileName);
+
+            fileSetChecks.forEach(FileSetCheck::finishProcessing);
+            fileSetChecks.forEach(FileSetCheck::destroy);
         }
-        
-        return findings;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+package com.epam.analysis;
+
+import com.epam.model.AnalysisFinding;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches static analysis findings by source code, so analyzing the same snippet again
+ * skips Checkstyle and PMD entirely.
+ * <p>
+ * The key is a SHA-256 hash of the code together with the path, size and modification
+ * time of every rule file, so editing a ruleset invalidates earlier results. The least
+ * recently used entries are evicted once the cache holds more than a fixed number of
+ * snippets. When a cache file is given, entries are loaded from it on creation and
+ * written back by {@link #save()}. Instances are thread-safe.
+ */
+public class FindingsCache {
+
+    /**
+     * Point-in-time cache metrics.
+     *
+     * @param hits Lookups answered from the cache
+     * @param misses Lookups that found nothing
+     * @param entries Snippets currently cached
+     */
+    public record Stats(long hits, long misses, int entries) {
+    }
+
+    private static final TypeReference<LinkedHashMap<String, List<AnalysisFinding>>> ENTRIES_TYPE =
+        new TypeReference<>() {
+        };
+
+    private final List<File> ruleFiles;
+    private final int maxEntries;
+    private final Path cacheFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LinkedHashMap<String, List<AnalysisFinding>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param ruleFiles Configuration files whose changes invalidate cached findings
+     * @param maxEntries Maximum number of cached snippets
+     */
+    public FindingsCache(List<File> ruleFiles, int maxEntries) {
+        this(ruleFiles, maxEntries, null);
+    }
+
+    /**
+     * Creates a cache persisted to a JSON file, loading any entries saved earlier.
+     * A missing or unreadable cache file starts the cache empty.
+     *
+     * @param ruleFiles Configuration files whose changes invalidate cached findings
+     * @param maxEntries Maximum number of cached snippets
+     * @param cacheFile File the entries are loaded from and saved to, or null to keep them in memory only
+     */
+    public FindingsCache(List<File> ruleFiles, int maxEntries, Path cacheFile) {
+        this.ruleFiles = List.copyOf(ruleFiles);
+        this.maxEntries = maxEntries;
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * Returns the cached findings for a snippet.
+     *
+     * @param code Java source code
+     * @return The findings, or null if this code was not analyzed with the current rule files
+     */
+    public List<AnalysisFinding> get(String code) {
+        String key = key(code);
+        synchronized (this) {
+            List<AnalysisFinding> findings = entries.get(key);
+            if (findings != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return findings;
+        }
+    }
+
+    /**
+     * Stores the findings for a snippet, evicting the least recently used entries if needed.
+     *
+     * @param code Java source code
+     * @param findings Findings of a complete, successful analysis of the code
+     */
+    public void put(String code, List<AnalysisFinding> findings) {
+        String key = key(code);
+        synchronized (this) {
+            entries.put(key, List.copyOf(findings));
+            evictOverflow();
+        }
+    }
+
+    /**
+     * @return Current cache metrics
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, entries.size());
+    }
+
+    /**
+     * Writes the entries to the cache file, least recently used first. Does nothing for
+     * an in-memory cache.
+     *
+     * @throws IOException If the cache file cannot be written
+     */
+    public void save() throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        Map<String, List<AnalysisFinding>> snapshot;
+        synchronized (this) {
+            snapshot = new LinkedHashMap<>(entries);
+        }
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // Write beside the target and move it into place, so a crash never leaves a truncated cache
+        Path temp = Files.createTempFile(parent, "findings-", ".tmp");
+        try {
+            mapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void load() {
+        if (cacheFile == null || !Files.exists(cacheFile)) {
+            return;
+        }
+        try {
+            Map<String, List<AnalysisFinding>> saved = mapper.readValue(cacheFile.toFile(), ENTRIES_TYPE);
+            // Earlier versions also saved the results of failed analyses; those are analyzed again
+            saved.values().removeIf(findings -> findings.stream()
+                .anyMatch(finding -> finding.issue().endsWith(" Analysis Error")));
+            synchronized (this) {
+                entries.putAll(saved);
+                evictOverflow();
+            }
+            System.out.println("Loaded " + entries.size() + " cached analysis results from " + cacheFile);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not load findings cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the limit holds. Must hold the lock.
+     */
+    private void evictOverflow() {
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (eldest.hasNext() && entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private String key(String code) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (File ruleFile : ruleFiles) {
+            String version = ruleFile.getAbsolutePath() + ":" + ruleFile.length() + ":" + ruleFile.lastModified() + "\n";
+            digest.update(version.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(code.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -4,53 +4,247 @@ import com.epam.model.AnalysisFinding;
 import net.sourceforge.pmd.PMDConfiguration;
 import net.sourceforge.pmd.PmdAnalysis;
 import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.RuleSetLoadException;
+import net.sourceforge.pmd.lang.rule.RuleSetLoader;
 import net.sourceforge.pmd.reporting.Report;
+import net.sourceforge.pmd.reporting.RuleViolation;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Integrates PMD static analysis tool to analyze Java code and collect findings.
  * Runs PMD rules against Java files and converts results to AnalysisFinding objects.
+ * <p>
+ * Parsed rulesets are cached per ruleset file and modification time and shared by all
+ * analyses in the process; PMD copies the rules for each analysis, so the cached
+ * ruleset itself is never modified.
+ * <p>
+ * Source code can also be analyzed straight from memory, in which case nothing is read
+ * from or written to disk.
+ * <p>
+ * Used as an {@link Analyzer}, a failed analysis is thrown; the methods taking a ruleset
+ * file report it as a "PMD Analysis Error" finding instead.
  */
-public class PMDAnalyzer {
+public class PMDAnalyzer implements Analyzer {
+
+    private static final LanguageVersion JAVA_VERSION =
+        Objects.requireNonNull(LanguageRegistry.PMD.getLanguageById("java")).getDefaultVersion();
+
+    /** Parsed rulesets by absolute ruleset file path, shared by all instances. */
+    private static final Map<String, CachedRuleSet> RULESETS = new ConcurrentHashMap<>();
+
+    private record CachedRuleSet(long mtime, RuleSet ruleSet) {
+    }
+
+    private final File rulesetFile;
+
+    /**
+     * Creates an analyzer that is given the ruleset file on each call.
+     */
+    public PMDAnalyzer() {
+        this(null);
+    }
+
+    /**
+     * Creates an analyzer bound to a ruleset file, for use as an {@link Analyzer}.
+     *
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     */
+    public PMDAnalyzer(File rulesetFile) {
+        this.rulesetFile = rulesetFile;
+    }
+
+    @Override
+    public String name() {
+        return "PMD";
+    }
+
+    /**
+     * Analyzes a Java file using the ruleset file given at construction.
+     *
+     * @param javaFile The Java source file to analyze
+     * @return List of analysis findings discovered by PMD
+     */
+    @Override
+    public List<AnalysisFinding> analyze(File javaFile) {
+        return audit(List.of(javaFile), Objects.requireNonNull(rulesetFile, "No PMD ruleset file"), 1).get(javaFile);
+    }
+
+    /**
+     * Analyzes in-memory source code using the ruleset file given at construction.
+     *
+     * @param fileName Name reported for the code; must end in .java
+     * @param code Java source code
+     * @return List of analysis findings discovered by PMD
+     */
+    @Override
+    public List<AnalysisFinding> analyzeSource(String fileName, String code) {
+        return auditSource(fileName, code, Objects.requireNonNull(rulesetFile, "No PMD ruleset file"));
+    }
+
+    /**
+     * Analyzes in-memory source code using PMD rules, without touching the file system.
+     * A failure is reported as a single "PMD Analysis Error" finding.
+     *
+     * @param fileName Name reported for the code; must end in .java
+     * @param code Java source code
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     * @return List of analysis findings discovered by PMD
+     */
+    public List<AnalysisFinding> analyzeSource(String fileName, String code, File rulesetFile) {
+        try {
+            return auditSource(fileName, code, rulesetFile);
+        } catch (Exception e) {
+            List<AnalysisFinding> findings = new ArrayList<>();
+            findings.add(new AnalysisFinding(
+                "PMD Analysis Error",
+                "Could not analyze " + fileName + ": " + e.getMessage()
+            ));
+            return findings;
+        }
+    }
 
     /**
      * Analyzes a Java file using PMD rules and returns findings.
-     * 
+     *
      * @param javaFile The Java source file to analyze
      * @param rulesetFile The PMD ruleset file containing analysis rules
      * @return List of analysis findings discovered by PMD
      */
     public List<AnalysisFinding> analyze(File javaFile, File rulesetFile) {
-        List<AnalysisFinding> findings = new ArrayList<>();
-        
+        return analyzeAll(List.of(javaFile), rulesetFile, 1).get(javaFile);
+    }
+
+    /**
+     * Analyzes all Java files under a directory (or a single file) in one PMD run,
+     * using one thread per available core.
+     *
+     * @param fileOrDirectory A Java source file or a directory searched recursively
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     * @return Findings per file, in path order
+     * @throws IOException If the directory cannot be listed
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(File fileOrDirectory, File rulesetFile) throws IOException {
+        return analyzeAll(SourceFiles.javaFiles(fileOrDirectory), rulesetFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Analyzes several Java files in a single PMD run; PMD spreads the files over its worker threads.
+     * A failed run is reported as a "PMD Analysis Error" finding for every file.
+     *
+     * @param javaFiles The Java source files to analyze
+     * @param rulesetFile The PMD ruleset file containing analysis rules
+     * @param threads Number of PMD worker threads
+     * @return Findings per file in the order given; every file has an entry, possibly empty
+     */
+    public Map<File, List<AnalysisFinding>> analyzeAll(List<File> javaFiles, File rulesetFile, int threads) {
         try {
-            PMDConfiguration configuration = new PMDConfiguration();
-            configuration.addInputPath(Path.of(javaFile.getAbsolutePath()));
-            configuration.addRuleSet(rulesetFile.getAbsolutePath());
-            configuration.setDefaultLanguageVersion(
-                Objects.requireNonNull(LanguageRegistry.PMD.getLanguageById("java")).getDefaultVersion()
-            );
-            
-            try (PmdAnalysis pmd = PmdAnalysis.create(configuration)) {
-                Report report = pmd.performAnalysisAndCollectReport();
-                
-                report.getViolations().forEach(violation -> findings.add(new AnalysisFinding(
-                    violation.getRule().getName(),
-                    javaFile.getName() + ":" + violation.getBeginLine() + " - " + violation.getDescription()
-                )));
-            }
+            return audit(javaFiles, rulesetFile, threads);
         } catch (Exception e) {
-            findings.add(new AnalysisFinding(
-                "PMD Analysis Error", 
+            Map<File, List<AnalysisFinding>> findingsByFile = new LinkedHashMap<>();
+            javaFiles.forEach(javaFile -> findingsByFile.put(javaFile, new ArrayList<>(List.of(new AnalysisFinding(
+                "PMD Analysis Error",
                 "Could not analyze " + javaFile.getName() + ": " + e.getMessage()
-            ));
+            )))));
+            return findingsByFile;
         }
+    }
 
+    private static List<AnalysisFinding> auditSource(String fileName, String code, File rulesetFile) {
+        List<AnalysisFinding> findings = new ArrayList<>();
+        PMDConfiguration configuration = configuration(1);
+        try (PmdAnalysis pmd = PmdAnalysis.create(configuration)) {
+            pmd.files().addSourceFile(FileId.fromPathLikeString(fileName), code);
+            performAnalysis(pmd, rulesetFile, configuration).getViolations()
+                .forEach(violation -> findings.add(toFinding(fileName, violation)));
+        }
         return findings;
     }
-}
\ No newline at end of file
+
+    private static Map<File, List<AnalysisFinding>> audit(List<File> javaFiles, File rulesetFile, int threads) {
+        Map<File, List<AnalysisFinding>> findingsByFile = new LinkedHashMap<>();
+        Map<String, File> filesByPath = new HashMap<>();
+        for (File javaFile : javaFiles) {
+            findingsByFile.put(javaFile, new ArrayList<>());
+            filesByPath.put(javaFile.getAbsolutePath(), javaFile);
+        }
+
+        PMDConfiguration configuration = configuration(threads);
+        javaFiles.forEach(javaFile -> configuration.addInputPath(Path.of(javaFile.getAbsolutePath())));
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(configuration)) {
+            Report report = performAnalysis(pmd, rulesetFile, configuration);
+
+            // Violations arrive in no particular file order; sort them back to their files
+            report.getViolations().forEach(violation -> {
+                File javaFile = filesByPath.get(violation.getFileId().getAbsolutePath());
+                if (javaFile != null) {
+                    findingsByFile.get(javaFile).add(toFinding(javaFile.getName(), violation));
+                }
+            });
+        }
+        return findingsByFile;
+    }
+
+    private static PMDConfiguration configuration(int threads) {
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setDefaultLanguageVersion(JAVA_VERSION);
+        configuration.setThreads(threads);
+        return configuration;
+    }
+
+    private static Report performAnalysis(PmdAnalysis pmd, File rulesetFile, PMDConfiguration configuration) {
+        RuleSet ruleSet = ruleSet(rulesetFile, configuration);
+        if (ruleSet != null) {
+            pmd.addRuleSet(ruleSet);
+        }
+        return pmd.performAnalysisAndCollectReport();
+    }
+
+    private static AnalysisFinding toFinding(String fileName, RuleViolation violation) {
+        return new AnalysisFinding(
+            violation.getRule().getName(),
+            fileName + ":" + violation.getBeginLine() + " - " + violation.getDescription()
+        );
+    }
+
+    /**
+     * Returns the parsed ruleset, parsing it again only when the file changed. Like PMD's own
+     * loading, a ruleset that cannot be loaded is reported and skipped; the failure is cached
+     * too, so it is reported once per file version.
+     *
+     * @return The ruleset, or null if it could not be loaded
+     */
+    private static RuleSet ruleSet(File rulesetFile, PMDConfiguration configuration) {
+        String path = rulesetFile.getAbsolutePath();
+        long mtime = rulesetFile.lastModified();
+        CachedRuleSet cached = RULESETS.get(path);
+        if (cached == null || cached.mtime() != mtime) {
+            cached = RULESETS.compute(path, (key, current) -> current != null && current.mtime() == mtime
+                ? current
+                : new CachedRuleSet(mtime, loadRuleSet(path, configuration)));
+        }
+        return cached.ruleSet();
+    }
+
+    private static RuleSet loadRuleSet(String path, PMDConfiguration configuration) {
+        try {
+            return RuleSetLoader.fromPmdConfig(configuration).loadFromResource(path);
+        } catch (RuleSetLoadException e) {
+            System.err.println("Warning: Could not load PMD ruleset: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.epam.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Collects the Java source files to analyze in a batch, and names in-memory sources.
+ */
+final class SourceFiles {
+
+    /** Used when the code declares no type, e.g. a bare method or statement snippet. */
+    static final String DEFAULT_FILE_NAME = "Snippet.java";
+
+    private static final Pattern PUBLIC_TYPE = Pattern.compile(
+        "\\bpublic\\s+(?:(?:abstract|final|static|strictfp|sealed|non-sealed)\\s+)*"
+            + "(?:class|interface|enum|record|@interface)\\s+(\\w+)");
+    private static final Pattern ANY_TYPE = Pattern.compile(
+        "\\b(?:class|interface|enum|record)\\s+(\\w+)");
+
+    private SourceFiles() {
+    }
+
+    /**
+     * Derives the file name javac would expect for a snippet: its public type, else its
+     * first declared type, else {@link #DEFAULT_FILE_NAME}.
+     *
+     * @param code Java source code
+     * @return A file name ending in .java
+     */
+    static String fileName(String code) {
+        Matcher matcher = PUBLIC_TYPE.matcher(code);
+        if (!matcher.find()) {
+            matcher = ANY_TYPE.matcher(code);
+            if (!matcher.find()) {
+                return DEFAULT_FILE_NAME;
+            }
+        }
+        return matcher.group(1) + ".java";
+    }
+
+    /**
+     * Lists Java source files in path order.
+     *
+     * @param fileOrDirectory A single Java file, or a directory searched recursively
+     * @return The Java files found
+     * @throws IOException If the directory cannot be walked
+     */
+    static List<File> javaFiles(File fileOrDirectory) throws IOException {
+        if (!fileOrDirectory.isDirectory()) {
+            return List.of(fileOrDirectory);
+        }
+        try (Stream<Path> paths = Files.walk(fileOrDirectory.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                .filter(path -> path.toString().endsWith(".java"))
+                .sorted()
+                .map(Path::toFile)
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.epam.analysis;
+
+import com.epam.model.AnalysisFinding;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs several independent static analysis engines on the same file at the same time.
+ * <p>
+ * Each engine runs on its own thread and is bounded by its own timeout, so the stage takes
+ * about as long as the slowest engine rather than the sum of all of them. A failing or
+ * timed-out engine is reported as an "Analysis Error" finding and does not affect the
+ * others. Results are always merged in the order the engines were registered.
+ * Instances are thread-safe and meant to be shared.
+ */
+public class StaticAnalysisPipeline implements AutoCloseable {
+
+    /** Default time each engine gets per file. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Outcome of one engine on one file.
+     *
+     * @param engine Engine name
+     * @param findings Findings, or a single error finding if the engine failed
+     * @param elapsedMillis Time the engine ran, or waited for before it timed out
+     * @param failed True if the engine threw or timed out
+     */
+    public record EngineResult(String engine, List<AnalysisFinding> findings, long elapsedMillis, boolean failed) {
+    }
+
+    /** One engine's analysis of the current input. */
+    @FunctionalInterface
+    private interface Analysis {
+        List<AnalysisFinding> runOn(Analyzer analyzer) throws Exception;
+    }
+
+    private final List<Analyzer> analyzers;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a pipeline over the given engines.
+     *
+     * @param analyzers Engines in the order their findings should be merged
+     * @param timeout Time each engine gets per file
+     */
+    public StaticAnalysisPipeline(List<Analyzer> analyzers, Duration timeout) {
+        this.analyzers = List.copyOf(analyzers);
+        this.timeout = timeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "static-analysis-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the standard Checkstyle + PMD pipeline with the default timeout.
+     *
+     * @param checkstyleConfig Checkstyle configuration file
+     * @param pmdRuleset PMD ruleset file
+     * @return Pipeline running Checkstyle and PMD, merged in that order
+     */
+    public static StaticAnalysisPipeline checkstyleAndPmd(File checkstyleConfig, File pmdRuleset) {
+        return new StaticAnalysisPipeline(
+            List.of(new CheckstyleAnalyzer(checkstyleConfig), new PMDAnalyzer(pmdRuleset)),
+            DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Runs all engines on a file concurrently.
+     *
+     * @param javaFile The Java source file to analyze
+     * @return One result per engine, in registration order
+     */
+    public List<EngineResult> run(File javaFile) {
+        return run(javaFile.getName(), analyzer -> analyzer.analyze(javaFile));
+    }
+
+    /**
+     * Runs all engines concurrently on source code held in memory. The code is reported
+     * under the file name of its public type, e.g. {@code Foo.java}.
+     *
+     * @param code Java source code
+     * @return One result per engine, in registration order
+     */
+    public List<EngineResult> runSource(String code) {
+        String fileName = SourceFiles.fileName(code);
+        return run(fileName, analyzer -> analyzer.analyzeSource(fileName, code));
+    }
+
+    /**
+     * Runs all engines on source code held in memory and merges their findings.
+     *
+     * @param code Java source code
+     * @return Findings of all engines, in registration order
+     */
+    public List<AnalysisFinding> analyzeSource(String code) {
+        return merge(runSource(code));
+    }
+
+    private List<EngineResult> run(String fileName, Analysis analysis) {
+        List<Future<EngineResult>> futures = new ArrayList<>(analyzers.size());
+        for (Analyzer analyzer : analyzers) {
+            futures.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                List<AnalysisFinding> findings = analysis.runOn(analyzer);
+                return new EngineResult(analyzer.name(), findings, elapsedMillis(start), false);
+            }));
+        }
+
+        // Every engine's timeout counts from the same start, since they all run at once
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        List<EngineResult> results = new ArrayList<>(analyzers.size());
+        for (int i = 0; i < analyzers.size(); i++) {
+            Analyzer analyzer = analyzers.get(i);
+            Future<EngineResult> future = futures.get(i);
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                results.add(failure(analyzer, fileName, "timed out after " + timeout.toMillis() + " ms", start));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results.add(failure(analyzer, fileName, String.valueOf(cause.getMessage()), start));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                results.add(failure(analyzer, fileName, "interrupted", start));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs all engines on a file concurrently and merges their findings.
+     *
+     * @param javaFile The Java source file to analyze
+     * @return Findings of all engines, in registration order
+     */
+    public List<AnalysisFinding> analyze(File javaFile) {
+        return merge(run(javaFile));
+    }
+
+    /**
+     * Concatenates the findings of several engine results, in order.
+     *
+     * @param results Engine results as returned by {@link #run(File)} or {@link #runSource(String)}
+     * @return All findings
+     */
+    public static List<AnalysisFinding> merge(List<EngineResult> results) {
+        List<AnalysisFinding> findings = new ArrayList<>();
+        for (EngineResult result : results) {
+            findings.addAll(result.findings());
+        }
+        return findings;
+    }
+
+    /**
+     * @return Names of the registered engines, in merge order
+     */
+    public List<String> engineNames() {
+        return analyzers.stream().map(Analyzer::name).toList();
+    }
+
+    /**
+     * Stops the engine threads; analyses still running are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static EngineResult failure(Analyzer analyzer, String fileName, String reason, long start) {
+        AnalysisFinding error = new AnalysisFinding(
+            analyzer.name() + " Analysis Error",
+            "Could not analyze " + fileName + ": " + reason
+        );
+        return new EngineResult(analyzer.name(), List.of(error), elapsedMillis(start), true);
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
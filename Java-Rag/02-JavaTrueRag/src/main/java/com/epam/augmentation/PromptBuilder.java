@@ -1,22 +1,99 @@
 package com.epam.augmentation;
 
 import com.epam.model.AnalysisFinding;
+import com.epam.model.FileFindings;
 import com.epam.model.KnowledgeEntry;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Builds prompts for the LLM by combining user queries, code context, and knowledge base entries.
  * This is the Augmentation part of RAG-enriching prompts with retrieved context.
+ * <p>
+ * Prompts are assembled against a token budget rather than fixed character limits. Repeated
+ * findings are merged, findings are ranked by how often they occur and knowledge entries
+ * keep their retrieval order, and each section is filled most relevant first until its
+ * share of the budget is used. Code that does not fit is trimmed to the lines around the
+ * reported findings instead of to the head of the file. Tokens are estimated at four
+ * characters each, which is close enough for code and English text.
  */
 public class PromptBuilder {
-    
+
+    /**
+     * Prompt budget when none is configured; leaves room for the answer in a 4096-token context.
+     */
+    public static final int DEFAULT_PROMPT_TOKENS = 3072;
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int CONTEXT_LINES = 3;
+    // Headings, fences and "not shown" notes around the sections
+    private static final int SECTION_OVERHEAD_TOKENS = 48;
+    private static final int OMITTED_MARKER_TOKENS = 8;
+    // Checkstyle and PMD details read "<file>:<line> - <message>"
+    private static final Pattern LINE_REFERENCE = Pattern.compile(":(\\d+) - ");
+
+    private static final String INSTRUCTIONS = """
+        INSTRUCTIONS:
+        Provide a comprehensive code review that:
+        1. Performs full analysis of the code — identify ALL issues beyond just the ones listed above
+        2. Explains why the detected issues above matters
+        3. Where relevant, references the best practices from the knowledge base
+        4. Suggests concrete improvements with code examples
+        5. Report any additional code enhancements beyond the KB provided\s
+        6. Uses a friendly, educational tone
+        """;
+
+    private static final String FILES_INSTRUCTIONS = """
+        INSTRUCTIONS:
+        Provide a code review for each file above that:
+        1. Starts with the file's path as a heading
+        2. Explains why the detected issues matter
+        3. Where relevant, references the best practices from the knowledge base
+        4. Suggests concrete improvements with short code examples
+        5. Points out further issues in the code shown
+        Keep each file's review concise; several files share this answer.
+        """;
+
+    /**
+     * Findings that report the same issue, in the order they were found.
+     */
+    private record FindingGroup(String issue, List<AnalysisFinding> findings) {
+    }
+
+    private final int promptTokens;
+
+    /**
+     * Creates a builder with the budget from the {@code rag.prompt.tokens} system property,
+     * or {@link #DEFAULT_PROMPT_TOKENS}.
+     */
+    public PromptBuilder() {
+        this(Integer.getInteger("rag.prompt.tokens", DEFAULT_PROMPT_TOKENS));
+    }
+
+    /**
+     * Creates a builder with a fixed budget.
+     *
+     * @param promptTokens Maximum estimated size of a prompt, in tokens
+     */
+    public PromptBuilder(int promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
     /**
      * Builds a prompt for explaining code issues with knowledge base context.
-     * 
+     *
      * @param userQuery The user's question or intent
      * @param findings List of code issues found
-     * @param knowledgeEntries Relevant knowledge base entries
+     * @param knowledgeEntries Relevant knowledge base entries, most relevant first
      * @param codeSnippet Optional code snippet for context
      * @return Formatted prompt for the LLM
      */
@@ -26,94 +103,289 @@ public class PromptBuilder {
         List<KnowledgeEntry> knowledgeEntries,
         String codeSnippet
     ) {
-        StringBuilder prompt = new StringBuilder();
-        
-        // System instruction
-        prompt.append("You are an expert Java code reviewer. ");
-        prompt.append("Provide clear and actionable feedback.\n\n");
-        
-        // User query
-        prompt.append("USER REQUEST:\n");
-        prompt.append(userQuery).append("\n\n");
-        
+        String header = "You are an expert Java code reviewer. "
+            + "Provide clear and actionable feedback.\n\n"
+            + "USER REQUEST:\n" + userQuery + "\n\n";
+        boolean hasCode = codeSnippet != null && !codeSnippet.isEmpty();
+
+        List<FindingGroup> groups = rankFindings(findings);
+        List<String> findingItems = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            findingItems.add(formatFinding(i + 1, groups.get(i)));
+        }
+        List<String> knowledgeItems = distinctByTitle(knowledgeEntries).stream()
+            .map(PromptBuilder::formatKnowledge)
+            .toList();
+
+        // Findings and knowledge each start with a quarter of the budget and the code gets
+        // the rest; whatever the code leaves unused goes back to findings, then knowledge
+        int available = promptTokens - estimateTokens(header) - estimateTokens(INSTRUCTIONS) - SECTION_OVERHEAD_TOKENS;
+        int findingCount = fit(findingItems, available / 4);
+        int knowledgeCount = fit(knowledgeItems, available / 4);
+        String code = hasCode
+            ? fitCode(codeSnippet, referencedLines(groups),
+                available - cost(findingItems, findingCount) - cost(knowledgeItems, knowledgeCount))
+            : "";
+        int codeTokens = estimateTokens(code);
+        findingCount = fit(findingItems, available - codeTokens - cost(knowledgeItems, knowledgeCount));
+        knowledgeCount = fit(knowledgeItems, available - codeTokens - cost(findingItems, findingCount));
+
+        StringBuilder prompt = new StringBuilder(header);
+
         // Code context
-        if (codeSnippet != null && !codeSnippet.isEmpty()) {
+        if (hasCode) {
             prompt.append("CODE BEING ANALYZED:\n");
             prompt.append("```java\n");
-            prompt.append(truncateCode(codeSnippet, 2000));
+            prompt.append(code);
             prompt.append("\n```\n\n");
         }
-        
+
         // Issues found
-        if (!findings.isEmpty()) {
+        if (findingCount > 0) {
             prompt.append("ISSUES DETECTED:\n");
-            for (int i = 0; i < Math.min(findings.size(), 5); i++) {
-                AnalysisFinding finding = findings.get(i);
-                prompt.append(String.format("%d. %s\n   Location: %s\n", 
-                    i + 1, finding.issue(), finding.details()));
+            findingItems.subList(0, findingCount).forEach(prompt::append);
+            if (findingCount < findingItems.size()) {
+                prompt.append(String.format("(%d less frequent issues not shown)\n", findingItems.size() - findingCount));
             }
             prompt.append("\n");
         }
-        
+
         // Knowledge base context
-        if (!knowledgeEntries.isEmpty()) {
+        if (knowledgeCount > 0) {
             prompt.append("RELEVANT BEST PRACTICES:\n");
-            for (KnowledgeEntry entry : knowledgeEntries) {
-                prompt.append(String.format("- %s (%s)\n", entry.getTitle(), entry.getType()));
-                prompt.append(String.format("  %s\n", entry.getDescription()));
-                if (entry.getExample() != null) {
-                    prompt.append(String.format("  Example: %s\n", entry.getExample()));
+            knowledgeItems.subList(0, knowledgeCount).forEach(prompt::append);
+            prompt.append("\n");
+        }
+
+        prompt.append(INSTRUCTIONS);
+        return prompt.toString();
+    }
+
+    /**
+     * Builds one prompt reviewing several files, e.g. the files of a package.
+     * <p>
+     * Knowledge entries get up to a quarter of the budget and the files share the rest
+     * equally. Within its share, each file lists its findings first, up to a third of the
+     * share, and its code is trimmed around the findings to fit what is left.
+     *
+     * @param userQuery The user's question or intent
+     * @param files Files with their code and findings, in the order they should appear
+     * @param knowledgeEntries Relevant knowledge base entries, most relevant first
+     * @return Formatted prompt for the LLM
+     */
+    public String buildFilesPrompt(String userQuery, List<FileFindings> files, List<KnowledgeEntry> knowledgeEntries) {
+        String header = "You are an expert Java code reviewer. "
+            + "Provide clear and actionable feedback.\n\n"
+            + "USER REQUEST:\n" + userQuery + "\n\n";
+        List<String> knowledgeItems = distinctByTitle(knowledgeEntries).stream()
+            .map(PromptBuilder::formatKnowledge)
+            .toList();
+
+        int available = promptTokens - estimateTokens(header) - estimateTokens(FILES_INSTRUCTIONS) - SECTION_OVERHEAD_TOKENS;
+        int knowledgeCount = fit(knowledgeItems, available / 4);
+        int perFile = (available - cost(knowledgeItems, knowledgeCount)) / Math.max(1, files.size());
+
+        StringBuilder prompt = new StringBuilder(header);
+        for (FileFindings file : files) {
+            List<FindingGroup> groups = rankFindings(file.findings());
+            List<String> findingItems = new ArrayList<>();
+            for (int i = 0; i < groups.size(); i++) {
+                findingItems.add(formatFinding(i + 1, groups.get(i)));
+            }
+            int findingCount = fit(findingItems, perFile / 3);
+            String code = fitCode(file.code(), referencedLines(groups),
+                perFile - cost(findingItems, findingCount) - estimateTokens(file.path()) - SECTION_OVERHEAD_TOKENS);
+
+            prompt.append("FILE: ").append(file.path()).append("\n");
+            prompt.append("```java\n").append(code).append("\n```\n");
+            if (findingCount > 0) {
+                prompt.append("ISSUES DETECTED:\n");
+                findingItems.subList(0, findingCount).forEach(prompt::append);
+                if (findingCount < findingItems.size()) {
+                    prompt.append(String.format("(%d less frequent issues not shown)\n", findingItems.size() - findingCount));
                 }
             }
             prompt.append("\n");
         }
-        
-        // Instructions
-        prompt.append("INSTRUCTIONS:\n");
-        prompt.append("Provide a comprehensive code review that:\n");
-        prompt.append("1. Performs full analysis of the code — identify ALL issues beyond just the ones listed above\n");
-        prompt.append("2. Explains why the detected issues above matters\n");
-        prompt.append("3. Where relevant, references the best practices from the knowledge base\n");
-        prompt.append("4. Suggests concrete improvements with code examples\n");
-        prompt.append("5. Report any additional code enhancements beyond the KB provided \n");
-        prompt.append("6. Uses a friendly, educational tone\n");
-        
+
+        if (knowledgeCount > 0) {
+            prompt.append("RELEVANT BEST PRACTICES:\n");
+            knowledgeItems.subList(0, knowledgeCount).forEach(prompt::append);
+            prompt.append("\n");
+        }
+
+        prompt.append(FILES_INSTRUCTIONS);
         return prompt.toString();
     }
-    
+
     /**
      * Builds a simple prompt for general code questions.
-     * 
+     *
      * @param userQuery The user's question
      * @param codeSnippet Code to analyze
      * @return Formatted prompt
      */
     public String buildSimplePrompt(String userQuery, String codeSnippet) {
-        return String.format("""
+        String template = """
             You are an expert Java code reviewer.
-            
+
             USER QUESTION:
             %s
-            
+
             CODE:
             ```java
             %s
             ```
-            
+
             Provide a clear, helpful answer.
-            """,
-            userQuery,
-            truncateCode(codeSnippet, 1000)
-        );
+            """;
+        int available = promptTokens - estimateTokens(template) - estimateTokens(userQuery);
+        return String.format(template, userQuery, fitCode(codeSnippet, List.of(), available));
+    }
+
+    /**
+     * Estimates how many tokens a text takes up in a prompt.
+     *
+     * @param text Any text
+     * @return Estimated token count
+     */
+    public static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Drops duplicate findings and groups the rest by issue, most frequent issue first.
+     * Issues that occur equally often keep the order in which they were found.
+     */
+    private static List<FindingGroup> rankFindings(List<AnalysisFinding> findings) {
+        Map<String, List<AnalysisFinding>> byIssue = new LinkedHashMap<>();
+        for (AnalysisFinding finding : new LinkedHashSet<>(findings)) {
+            byIssue.computeIfAbsent(finding.issue(), k -> new ArrayList<>()).add(finding);
+        }
+        return byIssue.entrySet().stream()
+            .map(entry -> new FindingGroup(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparingInt((FindingGroup group) -> group.findings().size()).reversed())
+            .toList();
     }
-    
+
+    private static String formatFinding(int number, FindingGroup group) {
+        List<AnalysisFinding> findings = group.findings();
+        StringBuilder item = new StringBuilder(String.format("%d. %s\n   Location: %s\n",
+            number, group.issue(), findings.get(0).details()));
+        if (findings.size() > 1) {
+            List<Integer> lines = new ArrayList<>();
+            findings.subList(1, findings.size()).forEach(finding -> lines.addAll(lineNumbers(finding)));
+            item.append(String.format("   Also reported %d more times%s\n", findings.size() - 1,
+                lines.isEmpty() ? "" : ", at lines " + lines.toString().replaceAll("[\\[\\]]", "")));
+        }
+        return item.toString();
+    }
+
+    private static List<KnowledgeEntry> distinctByTitle(List<KnowledgeEntry> entries) {
+        Set<String> titles = new HashSet<>();
+        return entries.stream().filter(entry -> titles.add(entry.getTitle())).toList();
+    }
+
+    private static String formatKnowledge(KnowledgeEntry entry) {
+        StringBuilder item = new StringBuilder();
+        item.append(String.format("- %s (%s)\n", entry.getTitle(), entry.getType()));
+        item.append(String.format("  %s\n", entry.getDescription()));
+        if (entry.getExample() != null) {
+            item.append(String.format("  Example: %s\n", entry.getExample()));
+        }
+        return item.toString();
+    }
+
     /**
-     * Truncates code to a maximum length to avoid token limits.
+     * Lines referenced by the findings, most frequent issue first, without repeats.
      */
-    private String truncateCode(String code, int maxLength) {
-        if (code.length() <= maxLength) {
+    private static List<Integer> referencedLines(List<FindingGroup> groups) {
+        Set<Integer> lines = new LinkedHashSet<>();
+        for (FindingGroup group : groups) {
+            group.findings().forEach(finding -> lines.addAll(lineNumbers(finding)));
+        }
+        return new ArrayList<>(lines);
+    }
+
+    private static List<Integer> lineNumbers(AnalysisFinding finding) {
+        List<Integer> lines = new ArrayList<>();
+        Matcher matcher = LINE_REFERENCE.matcher(finding.details());
+        while (matcher.find()) {
+            lines.add(Integer.parseInt(matcher.group(1)));
+        }
+        return lines;
+    }
+
+    /**
+     * Number of leading items that fit in a budget; lower-ranked items are dropped first.
+     */
+    private static int fit(List<String> items, int budget) {
+        int used = 0;
+        int count = 0;
+        while (count < items.size() && used + estimateTokens(items.get(count)) <= budget) {
+            used += estimateTokens(items.get(count));
+            count++;
+        }
+        return count;
+    }
+
+    private static int cost(List<String> items, int count) {
+        return items.subList(0, count).stream().mapToInt(PromptBuilder::estimateTokens).sum();
+    }
+
+    /**
+     * Trims code to a token budget. Code that fits is kept whole. Otherwise the lines around
+     * the focus lines are kept, as many windows as fit in focus order, and each omitted run
+     * is replaced by a marker naming its line numbers. Without focus lines, or if not even
+     * one window fits, the head of the code is kept.
+     *
+     * @param focusLines 1-based line numbers, most important first
+     */
+    private static String fitCode(String code, List<Integer> focusLines, int budget) {
+        if (estimateTokens(code) <= budget) {
             return code;
         }
-        return code.substring(0, maxLength) + "\n... (truncated)";
+        String[] lines = code.stripTrailing().split("\n", -1);
+        boolean[] keep = new boolean[lines.length];
+        int used = 0;
+        for (int focus : focusLines) {
+            if (focus < 1 || focus > lines.length) {
+                continue;
+            }
+            int from = Math.max(0, focus - 1 - CONTEXT_LINES);
+            int to = Math.min(lines.length - 1, focus - 1 + CONTEXT_LINES);
+            int windowCost = OMITTED_MARKER_TOKENS;
+            for (int i = from; i <= to; i++) {
+                windowCost += keep[i] ? 0 : estimateTokens(lines[i]) + 1;
+            }
+            if (used + windowCost <= budget) {
+                for (int i = from; i <= to; i++) {
+                    keep[i] = true;
+                }
+                used += windowCost;
+            }
+        }
+        if (used == 0) {
+            for (int i = 0; i < lines.length && used + estimateTokens(lines[i]) + 1 + OMITTED_MARKER_TOKENS <= budget; i++) {
+                keep[i] = true;
+                used += estimateTokens(lines[i]) + 1;
+            }
+        }
+
+        StringBuilder trimmed = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (keep[i]) {
+                trimmed.append(lines[i]).append('\n');
+                continue;
+            }
+            int start = i;
+            while (i + 1 < lines.length && !keep[i + 1]) {
+                i++;
+            }
+            trimmed.append(start == i
+                ? String.format("// ... (line %d omitted)\n", start + 1)
+                : String.format("// ... (lines %d-%d omitted)\n", start + 1, i + 1));
+        }
+        return trimmed.toString().stripTrailing();
     }
 }
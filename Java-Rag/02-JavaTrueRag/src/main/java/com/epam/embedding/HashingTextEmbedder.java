@@ -0,0 +1,191 @@
+package com.epam.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns text into a fixed-size, L2-normalized vector by feature hashing of its word
+ * unigrams and bigrams. No model is needed and the same text always gives the same
+ * vector, so it suits near-duplicate detection: texts that share most of their words
+ * have a cosine similarity close to 1.
+ * <p>
+ * The {@link #forRetrieval() retrieval} variant also splits identifiers such as
+ * {@code AvoidUsingVector} or {@code hidden.field} into words, drops filler words and adds
+ * the character trigrams of each word, so a rule name lands near a knowledge entry that
+ * describes the same thing in prose, even with different word forms.
+ * Instances are immutable and thread-safe.
+ */
+public class HashingTextEmbedder implements TextEmbedder {
+
+    /** Default vector size; large enough that unrelated words rarely collide. */
+    public static final int DEFAULT_DIMENSIONS = 512;
+
+    /** Vector size of the retrieval variant; knowledge entries and rule names are short. */
+    public static final int RETRIEVAL_DIMENSIONS = 384;
+
+    /** Words that rule names and entry titles share regardless of topic. */
+    private static final Set<String> FILLER_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "be", "by", "do", "for", "in", "instead", "is", "it", "not",
+        "of", "on", "or", "over", "should", "the", "to", "use", "using", "avoid", "prefer", "with");
+
+    private static final String WORD_SEPARATOR = "[^\\p{L}\\p{N}]+";
+    private static final String CAMEL_CASE_BOUNDARY = "(?<=\\p{Ll})(?=\\p{Lu})|(?<=\\p{Lu})(?=\\p{Lu}\\p{Ll})|(?<=\\p{L})(?=\\p{N})";
+
+    private final int dimensions;
+    private final boolean subwords;
+
+    /**
+     * Creates an embedder with {@link #DEFAULT_DIMENSIONS} dimensions.
+     */
+    public HashingTextEmbedder() {
+        this(DEFAULT_DIMENSIONS);
+    }
+
+    /**
+     * Creates an embedder with the given vector size.
+     *
+     * @param dimensions Number of vector components
+     */
+    public HashingTextEmbedder(int dimensions) {
+        this(dimensions, false);
+    }
+
+    private HashingTextEmbedder(int dimensions, boolean subwords) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive: " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.subwords = subwords;
+    }
+
+    /**
+     * Creates the variant used for knowledge base retrieval: identifiers are split into
+     * words, filler words are dropped and character trigrams are added.
+     *
+     * @return An embedder with {@link #RETRIEVAL_DIMENSIONS} dimensions
+     */
+    public static HashingTextEmbedder forRetrieval() {
+        return new HashingTextEmbedder(RETRIEVAL_DIMENSIONS, true);
+    }
+
+    @Override
+    public String id() {
+        return (subwords ? "hashing-subword-" : "hashing-") + dimensions;
+    }
+
+    /**
+     * @return Number of vector components
+     */
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Embeds a text. Words are lower-cased runs of letters and digits.
+     *
+     * @param text Text to embed
+     * @return Unit-length vector, or the zero vector for text without words
+     */
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        List<String> words = subwords
+            ? identifierWords(text)
+            : List.of(text.toLowerCase(Locale.ROOT).split(WORD_SEPARATOR));
+        String previous = null;
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            add(vector, word, 1f);
+            if (previous != null) {
+                add(vector, previous + ' ' + word, 1f);
+            }
+            if (subwords) {
+                addTrigrams(vector, word);
+            }
+            previous = word;
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    /**
+     * Cosine similarity of two vectors from {@link #embed(String)}, which are unit length,
+     * so this is their dot product.
+     *
+     * @return Similarity between -1 and 1; 0 if either vector is zero
+     */
+    public static float cosine(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Splits a text into lower-cased words, breaking camelCase identifiers apart and
+     * leaving out {@link #FILLER_WORDS}.
+     */
+    private static List<String> identifierWords(String text) {
+        List<String> words = new ArrayList<>();
+        for (String token : text.split(WORD_SEPARATOR)) {
+            for (String part : token.split(CAMEL_CASE_BOUNDARY)) {
+                String word = part.toLowerCase(Locale.ROOT);
+                if (!word.isEmpty() && !FILLER_WORDS.contains(word)) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Adds the character trigrams of a word, marked at both ends. They are scaled so all
+     * trigrams of a word together weigh as much as the word itself.
+     */
+    private void addTrigrams(float[] vector, String word) {
+        String marked = '^' + word + '$';
+        int count = marked.length() - 2;
+        float weight = (float) (1 / Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            add(vector, '#' + marked.substring(i, i + 3), weight);
+        }
+    }
+
+    /**
+     * Adds a feature with a hash-derived sign, so collisions cancel out rather than pile up.
+     */
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        vector[Math.floorMod(hash, dimensions)] += (hash & 0x4000_0000) == 0 ? weight : -weight;
+    }
+
+    /** Spreads String.hashCode bits (murmur3 finalizer). */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85eb_ca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2_ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.epam.embedding;
+
+import com.epam.llm.OllamaTextEmbedder;
+
+/**
+ * Turns text into a dense vector for similarity search.
+ * <p>
+ * Vectors from different embedders cannot be compared, so every embedder has an id that
+ * the knowledge base index records; a searcher only runs vector queries against an index
+ * written by the same embedder.
+ */
+public interface TextEmbedder {
+
+    /** System property selecting the embedder: "hashing" (default), "ollama:&lt;model&gt;" or "none". */
+    String PROPERTY = "rag.embedder";
+
+    /**
+     * @return Identifies the model and its settings, e.g. "hashing-subword-384"
+     */
+    String id();
+
+    /**
+     * @return Number of vector components
+     */
+    int dimensions();
+
+    /**
+     * Embeds a text.
+     *
+     * @param text Text to embed
+     * @return Unit-length vector, or the zero vector if the text has nothing to embed
+     */
+    float[] embed(String text);
+
+    /**
+     * Creates the embedder selected by the {@value #PROPERTY} system property.
+     *
+     * @return The configured embedder, or null if dense retrieval is disabled
+     */
+    static TextEmbedder configured() {
+        return of(System.getProperty(PROPERTY, "hashing"));
+    }
+
+    /**
+     * Creates an embedder from its description.
+     *
+     * @param spec "hashing" for the local {@link HashingTextEmbedder#forRetrieval()},
+     *             "ollama:&lt;model&gt;" for an Ollama embedding model, or "none"
+     * @return The embedder, or null for "none"
+     */
+    static TextEmbedder of(String spec) {
+        if (spec.equals("none")) {
+            return null;
+        }
+        if (spec.equals("hashing")) {
+            return HashingTextEmbedder.forRetrieval();
+        }
+        if (spec.startsWith("ollama:") && spec.length() > "ollama:".length()) {
+            return new OllamaTextEmbedder(spec.substring("ollama:".length()));
+        }
+        throw new IllegalArgumentException("Unknown embedder '" + spec + "', expected hashing, ollama:<model> or none");
+    }
+}
@@ -0,0 +1,90 @@
+package com.epam.generation;
+
+import com.epam.llm.OllamaClient;
+import com.epam.retrieval.KnowledgeBaseSearcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived pipeline components shared by all request threads of a server.
+ * <p>
+ * Creating an {@link OllamaClient} builds new chat models and HTTP clients, and opening a
+ * {@link KnowledgeBaseSearcher} starts with an empty pattern cache, so both are created once
+ * per model and per index directory and reused. Pipelines are likewise cached per index and
+ * model. Everything the registry opened is released by {@link #close()}.
+ */
+public class PipelineRegistry implements AutoCloseable {
+
+    private record PipelineKey(String indexDir, String modelName) {
+    }
+
+    private final Map<String, OllamaClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, KnowledgeBaseSearcher> searchers = new ConcurrentHashMap<>();
+    private final Map<PipelineKey, RAGPipeline> pipelines = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared client for a model, creating it on first use.
+     *
+     * @param modelName Ollama model name
+     * @return Client shared by all callers asking for this model
+     */
+    public OllamaClient client(String modelName) {
+        return clients.computeIfAbsent(modelName, OllamaClient::new);
+    }
+
+    /**
+     * Returns the shared searcher over an index directory, opening it on first use.
+     *
+     * @param indexDir Directory containing the knowledge base index
+     * @return Searcher owned by this registry; callers must not close it
+     */
+    public KnowledgeBaseSearcher searcher(String indexDir) {
+        return searchers.computeIfAbsent(indexDir, KnowledgeBaseSearcher::new);
+    }
+
+    /**
+     * Returns the shared pipeline for an index directory and model.
+     *
+     * @param indexDir Directory containing the knowledge base index
+     * @param modelName Ollama model name
+     * @return Pipeline owned by this registry; callers must not close it
+     */
+    public RAGPipeline pipeline(String indexDir, String modelName) {
+        return pipelines.computeIfAbsent(new PipelineKey(indexDir, modelName),
+            key -> new RAGPipeline(searcher(key.indexDir()), client(key.modelName())));
+    }
+
+    /**
+     * Creates a pipeline over a searcher the caller owns, such as a temporary in-memory index,
+     * reusing the shared client for the model. The pipeline is not cached.
+     *
+     * @param searcher Searcher owned by the caller
+     * @param modelName Ollama model name
+     * @return A new pipeline; closing it leaves the searcher open
+     */
+    public RAGPipeline pipeline(KnowledgeBaseSearcher searcher, String modelName) {
+        return new RAGPipeline(searcher, client(modelName));
+    }
+
+    /**
+     * Closes the searchers opened by this registry and forgets all cached components.
+     */
+    @Override
+    public void close() {
+        List<KnowledgeBaseSearcher> opened = new ArrayList<>(searchers.values());
+        pipelines.clear();
+        searchers.clear();
+        clients.clear();
+        for (KnowledgeBaseSearcher searcher : opened) {
+            try {
+                searcher.close();
+            } catch (IOException e) {
+                System.err.println("Warning: Could not close knowledge base index: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -3,20 +3,27 @@ package com.epam.generation;
 import com.epam.augmentation.PromptBuilder;
 import com.epam.constant.AppConstant;
 import com.epam.llm.OllamaClient;
+import com.epam.metrics.StageTimings;
 import com.epam.model.AnalysisFinding;
 import com.epam.model.KnowledgeEntry;
 import com.epam.retrieval.KnowledgeBaseSearcher;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * RAG (Retrieval-Augmented Generation) pipeline orchestrator.
  * Coordinates the three RAG steps: Retrieval, Augmentation, and Generation.
  */
-public class RAGPipeline {
+public class RAGPipeline implements AutoCloseable {
+    private static final int ENTRIES_PER_FINDING = 3;
+    private static final int MAX_KNOWLEDGE_ENTRIES = 5;
+
     private final OllamaClient ollamaClient;
     private final PromptBuilder promptBuilder;
     private final KnowledgeBaseSearcher searcher;
+    private final boolean ownsSearcher;
     
     /**
      * Creates a RAG pipeline with a default Ollama model.
@@ -34,9 +41,40 @@ public class RAGPipeline {
      * @param modelName Ollama model name
      */
     public RAGPipeline(String indexDir, String modelName) {
-        this.ollamaClient = new OllamaClient(modelName);
+        this(new KnowledgeBaseSearcher(indexDir), modelName, true);
+    }
+
+    /**
+     * Creates a RAG pipeline on top of a shared knowledge base searcher.
+     * The searcher is not closed by this pipeline; its owner controls its lifecycle.
+     *
+     * @param searcher Shared knowledge base searcher
+     * @param modelName Ollama model name
+     */
+    public RAGPipeline(KnowledgeBaseSearcher searcher, String modelName) {
+        this(searcher, modelName, false);
+    }
+
+    /**
+     * Creates a RAG pipeline from shared components. Neither the searcher nor the client
+     * is closed by this pipeline, so it is cheap to create per request.
+     *
+     * @param searcher Shared knowledge base searcher
+     * @param ollamaClient Shared Ollama client
+     */
+    public RAGPipeline(KnowledgeBaseSearcher searcher, OllamaClient ollamaClient) {
+        this(searcher, ollamaClient, false);
+    }
+
+    private RAGPipeline(KnowledgeBaseSearcher searcher, String modelName, boolean ownsSearcher) {
+        this(searcher, new OllamaClient(modelName), ownsSearcher);
+    }
+
+    private RAGPipeline(KnowledgeBaseSearcher searcher, OllamaClient ollamaClient, boolean ownsSearcher) {
+        this.ollamaClient = ollamaClient;
         this.promptBuilder = new PromptBuilder();
-        this.searcher = new KnowledgeBaseSearcher(indexDir);
+        this.searcher = searcher;
+        this.ownsSearcher = ownsSearcher;
     }
     
     /**
@@ -54,17 +92,113 @@ public class RAGPipeline {
         String codeSnippet
     ) throws Exception {
         
+        StageTimings timings = new StageTimings();
+        String prompt = preparePrompt(userQuery, findings, codeSnippet, timings);
+        String response;
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.GENERATION)) {
+            response = generate(prompt);
+            span.attribute(StageTimings.RESPONSE_TOKENS, PromptBuilder.estimateTokens(response));
+        }
+        System.out.println("⏱️ Timings: " + timings.summary());
+        return response;
+    }
+
+    /**
+     * Generates feedback like {@link #generateFeedback(String, List, String)}, but passes the
+     * response to a callback token by token while the LLM is still generating it.
+     * 
+     * @param userQuery User's question or intent (e.g., "Find bugs", "Explain issues")
+     * @param findings List of code issues detected
+     * @param codeSnippet The code being analyzed
+     * @param onToken Called with each response token, in order
+     * @return The complete LLM-generated feedback
+     * @throws Exception if generation fails
+     */
+    public String generateFeedback(
+        String userQuery,
+        List<AnalysisFinding> findings,
+        String codeSnippet,
+        Consumer<String> onToken
+    ) throws Exception {
+        
+        StageTimings timings = new StageTimings();
+        String prompt = preparePrompt(userQuery, findings, codeSnippet, timings);
+        String response;
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.GENERATION)) {
+            response = generate(prompt, onToken);
+            span.attribute(StageTimings.RESPONSE_TOKENS, PromptBuilder.estimateTokens(response));
+        }
+        System.out.println("⏱️ Timings: " + timings.summary());
+        return response;
+    }
+
+    /**
+     * Runs the RETRIEVAL and AUGMENTATION steps and returns the prompt for generation.
+     * Together with {@link #generate(String)} this is the same as
+     * {@link #generateFeedback(String, List, String)}, split so callers can schedule the
+     * steps separately.
+     * 
+     * @param userQuery User's question or intent
+     * @param findings List of code issues detected
+     * @param codeSnippet The code being analyzed
+     * @return The augmented prompt
+     * @throws Exception if retrieval fails
+     */
+    public String preparePrompt(
+        String userQuery,
+        List<AnalysisFinding> findings,
+        String codeSnippet
+    ) throws Exception {
+        
+        return preparePrompt(userQuery, findings, codeSnippet, new StageTimings());
+    }
+
+    /**
+     * Runs the RETRIEVAL and AUGMENTATION steps like {@link #preparePrompt(String, List, String)}
+     * and records a span for each step.
+     * 
+     * @param userQuery User's question or intent
+     * @param findings List of code issues detected
+     * @param codeSnippet The code being analyzed
+     * @param timings Receives the retrieval span (entries found) and the augmentation span
+     *                (estimated prompt tokens)
+     * @return The augmented prompt
+     * @throws Exception if retrieval fails
+     */
+    public String preparePrompt(
+        String userQuery,
+        List<AnalysisFinding> findings,
+        String codeSnippet,
+        StageTimings timings
+    ) throws Exception {
+        
         System.out.println("\n=== RAG PIPELINE ===");
         
         // Step 1: RETRIEVAL - Get relevant knowledge entries
         System.out.println("📚 Step 1: Retrieving relevant knowledge...");
-        List<KnowledgeEntry> knowledgeEntries = retrieveKnowledge(findings);
+        List<KnowledgeEntry> knowledgeEntries;
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.RETRIEVAL)) {
+            knowledgeEntries = retrieveKnowledge(findings);
+            span.attribute("entries", knowledgeEntries.size());
+        }
         System.out.println("   Found " + knowledgeEntries.size() + " relevant knowledge entries");
         
         // Step 2: AUGMENTATION - Build prompt with context
         System.out.println("🔧 Step 2: Building prompt with context...");
-        String prompt = promptBuilder.buildPrompt(userQuery, findings, knowledgeEntries, codeSnippet);
-        
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.AUGMENTATION)) {
+            String prompt = promptBuilder.buildPrompt(userQuery, findings, knowledgeEntries, codeSnippet);
+            span.attribute(StageTimings.PROMPT_TOKENS, PromptBuilder.estimateTokens(prompt));
+            return prompt;
+        }
+    }
+
+    /**
+     * Runs the GENERATION step on a prepared prompt.
+     * 
+     * @param prompt Prompt from {@link #preparePrompt(String, List, String)}
+     * @return LLM-generated feedback
+     */
+    public String generate(String prompt) {
         // Step 3: GENERATION - LLM generates response
         System.out.println("🤖 Step 3: Generating response with LLM...");
         String response = ollamaClient.generate(prompt);
@@ -74,20 +208,49 @@ public class RAGPipeline {
         return response;
     }
 
+    /**
+     * Runs the GENERATION step on a prepared prompt, passing the response to a callback
+     * token by token while the LLM is still generating it.
+     * 
+     * @param prompt Prompt from {@link #preparePrompt(String, List, String)}
+     * @param onToken Called with each response token, in order
+     * @return The complete LLM-generated feedback
+     */
+    public String generate(String prompt, Consumer<String> onToken) {
+        // Step 3: GENERATION - LLM streams its response
+        System.out.println("🤖 Step 3: Streaming response from LLM...");
+        String response = ollamaClient.generateStreaming(prompt, onToken);
+        
+        System.out.println("=== RAG COMPLETE ===\n");
+        
+        return response;
+    }
+
     /**
      * Retrieves relevant knowledge entries based on findings.
      * This is the RETRIEVAL step of RAG.
      */
     private List<KnowledgeEntry> retrieveKnowledge(List<AnalysisFinding> findings) throws Exception {
-        // Search for knowledge entries related to each finding
-        for (AnalysisFinding finding : findings) {
-            List<KnowledgeEntry> entries = searcher.search(finding.issue(), 3);
-            if (!entries.isEmpty()) {
-                return entries; // Return first match for simplicity
-            }
+        // Search for knowledge entries related to all findings in one batch
+        List<KnowledgeEntry> entries = searcher.searchMerged(
+            findings, ENTRIES_PER_FINDING, MAX_KNOWLEDGE_ENTRIES);
+        if (!entries.isEmpty()) {
+            return entries;
         }
         
         // If no specific matches, return general entries
         return searcher.search("best practices", 2);
     }
+
+    /**
+     * Closes the knowledge base searcher if this pipeline created it.
+     *
+     * @throws IOException If the index reader cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsSearcher) {
+            searcher.close();
+        }
+    }
 }
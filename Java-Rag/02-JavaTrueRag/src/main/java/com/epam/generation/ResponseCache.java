@@ -0,0 +1,206 @@
+package com.epam.generation;
+
+import com.epam.embedding.HashingTextEmbedder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches LLM answers by prompt, so repeating a review skips generation.
+ * <p>
+ * Prompts are normalized (whitespace runs collapsed) and hashed together with the model
+ * name; an identical prompt is an exact hit. Optionally, a miss falls back to a similarity
+ * tier over the inputs the prompt was built from (e.g. query, code, findings). Each input
+ * is embedded with a {@link HashingTextEmbedder} separately, because the instructions all
+ * prompts share would otherwise make unrelated prompts look alike. A cached answer for
+ * the same model is used if every input reaches the similarity threshold.
+ * Entries expire after a time-to-live and the least recently used ones are evicted once
+ * the cache is full. Instances are thread-safe.
+ */
+public class ResponseCache {
+
+    /**
+     * Point-in-time cache metrics.
+     *
+     * @param hits Lookups answered by an identical prompt
+     * @param similarHits Lookups answered by a similar prompt
+     * @param misses Lookups that found nothing
+     * @param entries Answers currently cached
+     */
+    public record Stats(long hits, long similarHits, long misses, int entries) {
+    }
+
+    private record Entry(String modelName, String response, List<float[]> inputs, long expiresAt) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final double similarityThreshold;
+    private final HashingTextEmbedder embedder = new HashingTextEmbedder();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long similarHits;
+    private long misses;
+
+    /**
+     * Creates a cache for exact prompt matches only.
+     *
+     * @param maxEntries Maximum number of cached answers
+     * @param ttl How long an answer stays valid
+     */
+    public ResponseCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, 0);
+    }
+
+    /**
+     * Creates a cache with an optional similarity tier.
+     *
+     * @param maxEntries Maximum number of cached answers
+     * @param ttl How long an answer stays valid
+     * @param similarityThreshold Minimum cosine similarity of every input for a near match,
+     *                            e.g. 0.9; 0 or less disables the similarity tier
+     */
+    public ResponseCache(int maxEntries, Duration ttl, double similarityThreshold) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    /**
+     * Looks up the answer for a prompt.
+     *
+     * @param modelName Model that would generate the answer
+     * @param prompt The full prompt
+     * @param inputs The texts the prompt was built from, always in the same order; only
+     *               used by the similarity tier, which an empty list skips
+     * @return The cached answer, or null on a miss
+     */
+    public String get(String modelName, String prompt, List<String> inputs) {
+        String key = key(modelName, normalize(prompt));
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - now > 0) {
+                hits++;
+                return entry.response();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+
+        if (similarityThreshold > 0 && !inputs.isEmpty()) {
+            // Embedding happens outside the lock; the scan is over at most maxEntries entries
+            List<float[]> embedded = embed(inputs);
+            synchronized (this) {
+                String bestKey = null;
+                float bestSimilarity = 0;
+                Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Entry> candidate = it.next();
+                    Entry value = candidate.getValue();
+                    if (value.expiresAt() - now <= 0) {
+                        it.remove();
+                    } else if (value.modelName().equals(modelName) && value.inputs().size() == embedded.size()) {
+                        float similarity = similarity(embedded, value.inputs());
+                        if (similarity >= similarityThreshold && similarity > bestSimilarity) {
+                            bestKey = candidate.getKey();
+                            bestSimilarity = similarity;
+                        }
+                    }
+                }
+                if (bestKey != null) {
+                    similarHits++;
+                    return entries.get(bestKey).response();
+                }
+            }
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the answer for a prompt, evicting the least recently used answers if needed.
+     *
+     * @param modelName Model that generated the answer
+     * @param prompt The full prompt
+     * @param inputs The texts the prompt was built from, in the order used for lookups
+     * @param response The complete answer
+     */
+    public void put(String modelName, String prompt, List<String> inputs, String response) {
+        String key = key(modelName, normalize(prompt));
+        List<float[]> embedded = similarityThreshold > 0 ? embed(inputs) : List.of();
+        Entry entry = new Entry(modelName, response, embedded, System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            entries.put(key, entry);
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * @return Current cache metrics
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, similarHits, misses, entries.size());
+    }
+
+    private List<float[]> embed(List<String> inputs) {
+        return inputs.stream().map(input -> embedder.embed(normalize(input))).toList();
+    }
+
+    /**
+     * Similarity of the least similar input pair; two inputs without words count as identical.
+     */
+    private static float similarity(List<float[]> a, List<float[]> b) {
+        float least = 1;
+        for (int i = 0; i < a.size(); i++) {
+            boolean aEmpty = isZero(a.get(i));
+            boolean bEmpty = isZero(b.get(i));
+            float similarity = aEmpty && bEmpty ? 1 : aEmpty || bEmpty ? 0 : HashingTextEmbedder.cosine(a.get(i), b.get(i));
+            least = Math.min(least, similarity);
+        }
+        return least;
+    }
+
+    private static boolean isZero(float[] vector) {
+        for (float value : vector) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collapses whitespace so re-indented code or trailing blank lines give the same prompt.
+     */
+    static String normalize(String prompt) {
+        return prompt.strip().replaceAll("\\s+", " ");
+    }
+
+    private static String key(String modelName, String normalizedPrompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalizedPrompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.epam.llm;
 
 import com.epam.constant.AppConstant;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
+import dev.langchain4j.model.output.Response;
 
 import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Client for interacting with Ollama LLM.
  * Handles connection, configuration, and generation requests.
+ * Responses can be returned whole or streamed token by token as Ollama produces them.
  */
 public class OllamaClient {
+    /** Upper bound for a whole streamed response; the HTTP timeout only covers gaps between tokens. */
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(5);
+
     private final ChatLanguageModel model;
+    private final StreamingChatLanguageModel streamingModel;
     private final String modelName;
     
     /**
@@ -35,6 +50,12 @@ public class OllamaClient {
                 .timeout(Duration.ofSeconds(60))
                 .temperature(0.7)
                 .build();
+        this.streamingModel = OllamaStreamingChatModel.builder()
+                .baseUrl(AppConstant.OLLAMA_BASE_URL)
+                .modelName(modelName)
+                .timeout(Duration.ofSeconds(60))
+                .temperature(0.7)
+                .build();
     }
     
     /**
@@ -59,6 +80,70 @@ public class OllamaClient {
         }
     }
     
+    /**
+     * Generates a response, passing each token to a callback as soon as Ollama sends it.
+     * Blocks until the response is complete. If the callback throws, or the response takes
+     * longer than the stream timeout, the connection to Ollama is closed, which stops the
+     * generation, and this method returns at once.
+     * 
+     * @param prompt The prompt to send to the LLM
+     * @param onToken Called with each token, in order, on an Ollama client thread; throws to stop the generation
+     * @return The complete response text
+     * @throws OllamaException if Ollama is not available, generation fails or the callback stopped it
+     */
+    public String generateStreaming(String prompt, Consumer<String> onToken) {
+        System.out.println("🤖 Streaming response with " + modelName + "...");
+        CompletableFuture<String> done = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        try {
+            streamingModel.generate(prompt, new StreamingResponseHandler<AiMessage>() {
+                @Override
+                public void onNext(String token) {
+                    // Throwing ends the client's read loop, which closes the connection to Ollama
+                    if (done.isDone()) {
+                        throw new CancellationException("Streaming stopped");
+                    }
+                    if (token == null || token.isEmpty()) {
+                        return;
+                    }
+                    text.append(token);
+                    try {
+                        onToken.accept(token);
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(e);
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    done.complete(text.toString());
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    done.completeExceptionally(error);
+                }
+            });
+            String response = done.get(STREAM_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            System.out.println("✅ Response streamed successfully");
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OllamaException("Interrupted while streaming response from Ollama", e);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            throw new OllamaException(
+                "Failed to stream response from Ollama. " +
+                "Please ensure Ollama is running (ollama serve) and model is downloaded (ollama pull " + modelName + ")",
+                cause
+            );
+        } finally {
+            // After a timeout or an interrupt, the next token stops the stream
+            done.cancel(false);
+        }
+    }
+    
     /**
      * Exception thrown when Ollama operations fail.
      */
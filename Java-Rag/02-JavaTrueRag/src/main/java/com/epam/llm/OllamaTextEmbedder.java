@@ -0,0 +1,59 @@
+package com.epam.llm;
+
+import com.epam.constant.AppConstant;
+import com.epam.embedding.TextEmbedder;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+
+import java.time.Duration;
+
+/**
+ * Embeds text with an Ollama embedding model such as "nomic-embed-text".
+ * Vectors are normalized to unit length so they can be compared by dot product.
+ * Needs a running Ollama server; see {@link com.epam.embedding.HashingTextEmbedder} for
+ * an embedder that works offline.
+ */
+public class OllamaTextEmbedder implements TextEmbedder {
+
+    private final EmbeddingModel model;
+    private final String modelName;
+    private volatile int dimensions;
+
+    /**
+     * Creates an embedder for a model served by the local Ollama instance.
+     *
+     * @param modelName Name of the Ollama embedding model (e.g., "nomic-embed-text")
+     */
+    public OllamaTextEmbedder(String modelName) {
+        this.modelName = modelName;
+        this.model = OllamaEmbeddingModel.builder()
+                .baseUrl(AppConstant.OLLAMA_BASE_URL)
+                .modelName(modelName)
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    @Override
+    public String id() {
+        return "ollama-" + modelName;
+    }
+
+    /**
+     * @return Number of vector components; the first call embeds a sample text to find out
+     */
+    @Override
+    public int dimensions() {
+        if (dimensions == 0) {
+            dimensions = embed("dimension probe").length;
+        }
+        return dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        Embedding embedding = model.embed(text).content();
+        embedding.normalize();
+        return embedding.vector();
+    }
+}
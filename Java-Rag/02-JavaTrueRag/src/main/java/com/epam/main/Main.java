@@ -1,7 +1,6 @@
 package com.epam.main;
 
-import com.epam.analysis.CheckstyleAnalyzer;
-import com.epam.analysis.PMDAnalyzer;
+import com.epam.analysis.StaticAnalysisPipeline;
 import com.epam.constant.AppConstant;
 import com.epam.generation.RAGPipeline;
 import com.epam.model.AnalysisFinding;
@@ -10,6 +9,7 @@ import com.epam.retrieval.KnowledgeBaseIndexer;
 import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,6 +22,9 @@ public class Main {
     public static void main(String[] args) throws Exception {
         if (args.length == 0) {
             runTestSamples();
+        } else if (args[0].equals("--review")) {
+            // Repository Mode: java -jar app.jar --review <dir> [query] [report]
+            RepositoryReviewRunner.main(Arrays.copyOfRange(args, 1, args.length));
         } else if (args.length == 2) {
             // RAG Mode: java-jar app.jar <file> <query>
             runRAGMode(args[0], args[1]);
@@ -40,10 +43,14 @@ public class Main {
             RAG Mode (file + query):
               mvn exec:java -Dexec.args="<file> '<query>'"
             
+            Repository Mode (every Java file under a directory, one report):
+              mvn exec:java -Dexec.args="--review <dir> ['<query>'] [reportFile]"
+            
             Examples:
               mvn exec:java -Dexec.args="samples/KnowledgeBaseTestExample.java 'Find bugs'"
               mvn exec:java -Dexec.args="samples/KnowledgeBaseTestExample.java 'Explain the issues'"
               mvn exec:java -Dexec.args="samples/KnowledgeBaseTestExample.java 'Suggest improvements'"
+              mvn exec:java -Dexec.args="--review samples"
             """);
     }
     
@@ -85,9 +92,7 @@ public class Main {
         }
         
         // TRUE RAG: Generate feedback using LLM
-        RAGPipeline ragPipeline = new RAGPipeline(indexDir);
-        
-        try {
+        try (RAGPipeline ragPipeline = new RAGPipeline(indexDir)) {
             String feedback = ragPipeline.generateFeedback(userQuery, findings, sourceCode);
             
             System.out.println("\n" + "=".repeat(60));
@@ -168,8 +173,8 @@ public class Main {
         }
         
         KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer();
-        indexer.indexKnowledgeBase(kbDir, indexDir);
-        System.out.println("Knowledge base indexed successfully.");
+        KnowledgeBaseIndexer.IndexingReport report = indexer.indexKnowledgeBase(kbDir, indexDir);
+        System.out.println("Knowledge base indexed successfully: " + report.summary());
     }
     
     /**
@@ -184,17 +189,14 @@ public class Main {
     private static List<AnalysisFinding> runStaticAnalysis(File javaFile, File checkstyleConfig, File pmdRuleset) throws Exception {
         System.out.println("Running static analysis...");
 
-        // Run Checkstyle analysis
-        CheckstyleAnalyzer checkstyle = new CheckstyleAnalyzer();
-        List<AnalysisFinding> checkstyleFindings = checkstyle.analyze(javaFile, checkstyleConfig);
-        List<AnalysisFinding> allFindings = new ArrayList<>(checkstyleFindings);
-        System.out.println("Checkstyle found " + checkstyleFindings.size() + " issues.");
-        
-        // Run PMD analysis
-        PMDAnalyzer pmd = new PMDAnalyzer();
-        List<AnalysisFinding> pmdFindings = pmd.analyze(javaFile, pmdRuleset);
-        allFindings.addAll(pmdFindings);
-        System.out.println("PMD found " + pmdFindings.size() + " issues.");
+        // Run Checkstyle and PMD analysis concurrently
+        List<AnalysisFinding> allFindings = new ArrayList<>();
+        try (StaticAnalysisPipeline pipeline = StaticAnalysisPipeline.checkstyleAndPmd(checkstyleConfig, pmdRuleset)) {
+            for (StaticAnalysisPipeline.EngineResult result : pipeline.run(javaFile)) {
+                allFindings.addAll(result.findings());
+                System.out.println(result.engine() + " found " + result.findings().size() + " issues.");
+            }
+        }
         
         System.out.println("Total findings: " + allFindings.size());
         return allFindings;
@@ -1,7 +1,6 @@
 package com.epam.main;
 
-import com.epam.analysis.CheckstyleAnalyzer;
-import com.epam.analysis.PMDAnalyzer;
+import com.epam.analysis.StaticAnalysisPipeline;
 import com.epam.constant.AppConstant;
 import com.epam.generation.RAGPipeline;
 import com.epam.llm.OllamaClient;
@@ -46,8 +45,8 @@ public class RAGRunner {
 
         // Index KB once before the query loop
         KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer();
-        indexer.indexKnowledgeBase(KB_DIR, INDEX_DIR);
-        System.out.println("Knowledge base indexed.");
+        KnowledgeBaseIndexer.IndexingReport report = indexer.indexKnowledgeBase(KB_DIR, INDEX_DIR);
+        System.out.println("Knowledge base indexed: " + report.summary());
 
         File javaFile = new File(TEST_FILE);
         if (!javaFile.exists()) {
@@ -59,31 +58,31 @@ public class RAGRunner {
         List<AnalysisFinding> findings = runStaticAnalysis(
                 javaFile, new File(CHECKSTYLE_CONFIG), new File(PMD_RULESET));
 
-        RAGPipeline rag = new RAGPipeline(INDEX_DIR);
-
-        for (int i = 0; i < TEST_QUERIES.length; i++) {
-            System.out.println("\n" + "-".repeat(60));
-            System.out.printf("Query %d/%d: %s%n", i + 1, TEST_QUERIES.length, TEST_QUERIES[i]);
-            System.out.println("-".repeat(60));
-
-            try {
-                String feedback = rag.generateFeedback(TEST_QUERIES[i], findings, sourceCode);
-
-                System.out.println("\n" + "=".repeat(60));
-                System.out.println("RAG FEEDBACK");
-                System.out.println("=".repeat(60));
-                System.out.println(feedback);
-                System.out.println("=".repeat(60));
-
-            } catch (OllamaClient.OllamaException e) {
-                System.err.println("Error generating response: " + e.getMessage());
-                System.err.println("Ensure Ollama is running: ollama serve");
-                System.err.println("Model must be downloaded: ollama pull " + AppConstant.OLLAMA_MODEL);
-            }
-
-            if (i < TEST_QUERIES.length - 1) {
-                System.out.println("\nWaiting 2 seconds before next query...");
-                Thread.sleep(2000);
+        try (RAGPipeline rag = new RAGPipeline(INDEX_DIR)) {
+            for (int i = 0; i < TEST_QUERIES.length; i++) {
+                System.out.println("\n" + "-".repeat(60));
+                System.out.printf("Query %d/%d: %s%n", i + 1, TEST_QUERIES.length, TEST_QUERIES[i]);
+                System.out.println("-".repeat(60));
+
+                try {
+                    String feedback = rag.generateFeedback(TEST_QUERIES[i], findings, sourceCode);
+
+                    System.out.println("\n" + "=".repeat(60));
+                    System.out.println("RAG FEEDBACK");
+                    System.out.println("=".repeat(60));
+                    System.out.println(feedback);
+                    System.out.println("=".repeat(60));
+
+                } catch (OllamaClient.OllamaException e) {
+                    System.err.println("Error generating response: " + e.getMessage());
+                    System.err.println("Ensure Ollama is running: ollama serve");
+                    System.err.println("Model must be downloaded: ollama pull " + AppConstant.OLLAMA_MODEL);
+                }
+
+                if (i < TEST_QUERIES.length - 1) {
+                    System.out.println("\nWaiting 2 seconds before next query...");
+                    Thread.sleep(2000);
+                }
             }
         }
 
@@ -96,16 +95,14 @@ public class RAGRunner {
             File javaFile, File checkstyleConfig, File pmdRuleset) throws Exception {
 
         System.out.println("Running static analysis...");
-        CheckstyleAnalyzer checkstyle = new CheckstyleAnalyzer();
-        List<AnalysisFinding> checkstyleFindings = checkstyle.analyze(javaFile, checkstyleConfig);
-        System.out.println("Checkstyle: " + checkstyleFindings.size() + " issues.");
-
-        PMDAnalyzer pmd = new PMDAnalyzer();
-        List<AnalysisFinding> pmdFindings = pmd.analyze(javaFile, pmdRuleset);
-        System.out.println("PMD: " + pmdFindings.size() + " issues.");
+        List<AnalysisFinding> all = new ArrayList<>();
+        try (StaticAnalysisPipeline pipeline = StaticAnalysisPipeline.checkstyleAndPmd(checkstyleConfig, pmdRuleset)) {
+            for (StaticAnalysisPipeline.EngineResult result : pipeline.run(javaFile)) {
+                all.addAll(result.findings());
+                System.out.println(result.engine() + ": " + result.findings().size() + " issues.");
+            }
+        }
 
-        List<AnalysisFinding> all = new ArrayList<>(checkstyleFindings);
-        all.addAll(pmdFindings);
         System.out.println("Total: " + all.size() + " findings.");
         return all;
     }
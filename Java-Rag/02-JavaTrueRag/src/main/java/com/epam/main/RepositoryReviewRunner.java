@@ -0,0 +1,83 @@
+package com.epam.main;
+
+import com.epam.analysis.StaticAnalysisPipeline;
+import com.epam.augmentation.PromptBuilder;
+import com.epam.constant.AppConstant;
+import com.epam.llm.OllamaClient;
+import com.epam.retrieval.KnowledgeBaseIndexer;
+import com.epam.retrieval.KnowledgeBaseSearcher;
+import com.epam.review.RepositoryReviewer;
+import com.epam.review.ReviewReport;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Repository review mode — reviews every Java file under a directory and writes one
+ * aggregated Markdown report.
+ * <p>
+ * Static analysis runs on one thread per core; the findings of each package directory
+ * are reviewed by the LLM while the next directories are still being analyzed.
+ * Set {@code -Drag.review.generationThreads} to send several prompts to Ollama at once,
+ * and {@code -Drag.review.llm=false} to collect findings only.
+ * <p>
+ * Run: mvn exec:java -Dexec.mainClass=com.epam.main.RepositoryReviewRunner
+ *          -Dexec.args="&lt;sourceDir&gt; ['&lt;query&gt;'] [reportFile]"
+ */
+@SuppressWarnings("java:S106")
+public class RepositoryReviewRunner {
+
+    private static final String CHECKSTYLE_CONFIG = "src/main/resources/checkstyle.xml";
+    private static final String PMD_RULESET = "src/main/resources/pmd-ruleset.xml";
+    private static final String KB_DIR = "src/main/resources/knowledgebase";
+    private static final String INDEX_DIR = "index";
+    private static final String DEFAULT_QUERY = "Review this code for issues";
+    private static final String DEFAULT_REPORT = "target/review-report.md";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: RepositoryReviewRunner <sourceDir> ['<query>'] [reportFile]");
+            return;
+        }
+        Path root = Path.of(args[0]);
+        String query = args.length > 1 ? args[1] : DEFAULT_QUERY;
+        Path reportFile = Path.of(args.length > 2 ? args[2] : DEFAULT_REPORT);
+        if (!Files.isDirectory(root)) {
+            System.err.println("Directory not found: " + root);
+            return;
+        }
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Repository Review (static analysis + KB retrieval + LLM)");
+        System.out.println("=".repeat(60));
+
+        KnowledgeBaseIndexer.IndexingReport indexing = new KnowledgeBaseIndexer().indexKnowledgeBase(KB_DIR, INDEX_DIR);
+        System.out.println("Knowledge base indexed: " + indexing.summary());
+
+        boolean useLlm = Boolean.parseBoolean(System.getProperty("rag.review.llm", "true"));
+        int analysisThreads = Runtime.getRuntime().availableProcessors();
+        int generationThreads = Integer.getInteger("rag.review.generationThreads", 1);
+        int promptTokens = Integer.getInteger("rag.prompt.tokens", PromptBuilder.DEFAULT_PROMPT_TOKENS);
+
+        ReviewReport report;
+        try (StaticAnalysisPipeline staticAnalysis = StaticAnalysisPipeline.checkstyleAndPmd(
+                 new File(CHECKSTYLE_CONFIG), new File(PMD_RULESET));
+             KnowledgeBaseSearcher searcher = new KnowledgeBaseSearcher(INDEX_DIR);
+             RepositoryReviewer reviewer = new RepositoryReviewer(staticAnalysis, searcher,
+                 useLlm ? new OllamaClient(AppConstant.OLLAMA_MODEL) : null,
+                 promptTokens, analysisThreads, generationThreads)) {
+            report = reviewer.review(root, query);
+        }
+
+        Path parent = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.writeString(reportFile, report.toMarkdown());
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.printf("Reviewed %d files: %d findings in %.1f s%n",
+            report.fileCount(), report.findingCount(), report.elapsedMillis() / 1000.0);
+        System.out.println("Report written to " + reportFile);
+        System.out.println("=".repeat(60));
+    }
+}
@@ -0,0 +1,222 @@
+package com.epam.main;
+
+import com.epam.model.KnowledgeEntry;
+import com.epam.retrieval.KnowledgeBaseIndexer;
+import com.epam.retrieval.KnowledgeBaseSearcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks substring matching in the knowledge base: the former leading-wildcard
+ * queries against the n-gram subfield term lookups used by KnowledgeBaseSearcher.
+ * The real knowledge base is padded with synthetic entries to show how query latency
+ * grows with the number of entries, and every query is checked for identical hits.
+ * <p>
+ * Run: mvn exec:java -Dexec.mainClass=com.epam.main.RetrievalBenchmark
+ */
+@SuppressWarnings("java:S106")
+public class RetrievalBenchmark {
+
+    private static final String KB_DIR = "src/main/resources/knowledgebase";
+    private static final int[] KB_SIZES = {6, 100, 1_000, 10_000, 100_000};
+    private static final String[] FIELDS = {"title", "description", "tags"};
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURE_ITERATIONS = 100;
+
+    // Lowercased queries as produced by static analysis rule names
+    private static final String[] QUERIES = {
+        "avoidvector", "usecollectionisempty", "avoidstarimport", "vector",
+        "synchronized", "enumeration", "concatenation", "unusedimports",
+        // Longer than the largest indexed gram
+        "codepatternfortest", "maintainability", "synchronizedcollection"
+    };
+
+    private static final String[] SYLLABLES = {
+        "list", "map", "set", "array", "stream", "lock", "cache", "pool", "queue", "string",
+        "builder", "buffer", "thread", "async", "null", "check", "loop", "index", "hash", "tree"
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("Knowledge Base Retrieval Benchmark (wildcard vs n-gram)");
+        System.out.println("=".repeat(80));
+        System.out.printf("Warmup: %d, measured: %d iterations x %d queries%n",
+            WARMUP_ITERATIONS, MEASURE_ITERATIONS, QUERIES.length);
+
+        List<KnowledgeEntry> realEntries = loadRealEntries();
+        List<String[]> rows = new ArrayList<>();
+
+        for (int size : KB_SIZES) {
+            Path indexDir = Files.createTempDirectory("rag-bench-idx");
+            try {
+                List<KnowledgeEntry> entries = new ArrayList<>(realEntries);
+                entries.add(splitGramsEntry());
+                entries.addAll(syntheticEntries(size - entries.size()));
+
+                long indexStart = System.nanoTime();
+                new KnowledgeBaseIndexer().indexEntries(entries, indexDir.toString());
+                long indexMs = (System.nanoTime() - indexStart) / 1_000_000;
+
+                try (FSDirectory dir = FSDirectory.open(indexDir);
+                     DirectoryReader reader = DirectoryReader.open(dir)) {
+                    IndexSearcher searcher = new IndexSearcher(reader);
+                    verifyParity(searcher);
+                    double wildcardUs = measure(searcher, false);
+                    double ngramUs = measure(searcher, true);
+                    rows.add(new String[]{
+                        String.valueOf(entries.size()), String.valueOf(indexMs),
+                        String.format("%.1f", wildcardUs), String.format("%.1f", ngramUs),
+                        String.format("%.1fx", wildcardUs / ngramUs)
+                    });
+                }
+            } finally {
+                deleteDir(indexDir.toFile());
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %-12s %-18s %-18s %-8s%n",
+            "Entries", "Index (ms)", "Wildcard (us/q)", "N-gram (us/q)", "Speedup");
+        System.out.println("-".repeat(80));
+        for (String[] row : rows) {
+            System.out.printf("%-10s %-12s %-18s %-18s %-8s%n", (Object[]) row);
+        }
+        System.out.println("=".repeat(80));
+    }
+
+    /**
+     * Average latency per query in microseconds for one of the two substring strategies.
+     */
+    private static double measure(IndexSearcher searcher, boolean ngram) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runQueries(searcher, ngram);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            runQueries(searcher, ngram);
+        }
+        long elapsed = System.nanoTime() - start;
+        return elapsed / 1_000.0 / MEASURE_ITERATIONS / QUERIES.length;
+    }
+
+    private static void runQueries(IndexSearcher searcher, boolean ngram) throws Exception {
+        for (String query : QUERIES) {
+            searcher.search(substringQuery(query, ngram), 10);
+        }
+    }
+
+    /**
+     * Fails fast if the n-gram query ever matches different documents than the wildcard query.
+     */
+    private static void verifyParity(IndexSearcher searcher) throws Exception {
+        for (String query : QUERIES) {
+            int[] wildcardDocs = matchingDocs(searcher, substringQuery(query, false));
+            int[] ngramDocs = matchingDocs(searcher, substringQuery(query, true));
+            if (!Arrays.equals(wildcardDocs, ngramDocs)) {
+                throw new IllegalStateException("Substring results differ for query: " + query);
+            }
+        }
+    }
+
+    private static int[] matchingDocs(IndexSearcher searcher, Query query) throws Exception {
+        int limit = Math.max(1, searcher.getIndexReader().maxDoc());
+        return Arrays.stream(searcher.search(query, limit).scoreDocs).mapToInt(sd -> sd.doc).sorted().toArray();
+    }
+
+    private static Query substringQuery(String query, boolean ngram) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String field : FIELDS) {
+            Query fieldQuery = ngram
+                ? KnowledgeBaseSearcher.substringQuery(field, query)
+                : new WildcardQuery(new Term(field, "*" + query + "*"));
+            builder.add(fieldQuery, BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    private static List<KnowledgeEntry> loadRealEntries() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<KnowledgeEntry> entries = new ArrayList<>();
+        File[] jsonFiles = new File(KB_DIR).listFiles((dir, name) -> name.endsWith(".json"));
+        if (jsonFiles != null) {
+            for (File file : jsonFiles) {
+                entries.add(mapper.readValue(file, KnowledgeEntry.class));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * An entry holding the grams of "synchronizedcollection" in two different tokens but not
+     * the word itself, which a substring query must not match.
+     */
+    private static KnowledgeEntry splitGramsEntry() {
+        KnowledgeEntry entry = new KnowledgeEntry();
+        entry.setTitle("Synchronized wrappedcollection");
+        entry.setType("Best Practice");
+        entry.setDescription("Grams of a long query spread over two words");
+        entry.setExample("");
+        entry.setReference("Synthetic rule");
+        entry.setTags(List.of("synchronized", "wrappedcollection"));
+        return entry;
+    }
+
+    /**
+     * Generates reproducible entries whose vocabulary grows with the number of entries,
+     * so the term dictionary scanned by wildcard queries grows as well.
+     */
+    private static List<KnowledgeEntry> syntheticEntries(int count) {
+        Random random = new Random(42);
+        List<KnowledgeEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            KnowledgeEntry entry = new KnowledgeEntry();
+            entry.setTitle("Prefer " + word(random, i) + " over " + word(random, i));
+            entry.setType(i % 2 == 0 ? "Best Practice" : "Anti-pattern");
+            entry.setDescription(sentence(random, i, 20));
+            entry.setExample(sentence(random, i, 10));
+            entry.setReference("Synthetic rule " + i);
+            entry.setTags(List.of(word(random, i), word(random, i), word(random, i)));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static String sentence(Random random, int seed, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sb.append(word(random, seed)).append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    private static String word(Random random, int seed) {
+        return SYLLABLES[random.nextInt(SYLLABLES.length)]
+            + SYLLABLES[random.nextInt(SYLLABLES.length)]
+            + Integer.toString(random.nextInt(seed + 1), 36);
+    }
+
+    private static void deleteDir(File dir) {
+        if (dir.isDirectory()) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) deleteDir(f);
+            }
+        }
+        dir.delete();
+    }
+}
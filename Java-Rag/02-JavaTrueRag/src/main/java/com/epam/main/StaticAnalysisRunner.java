@@ -1,7 +1,6 @@
 package com.epam.main;
 
-import com.epam.analysis.CheckstyleAnalyzer;
-import com.epam.analysis.PMDAnalyzer;
+import com.epam.analysis.StaticAnalysisPipeline;
 import com.epam.model.AnalysisFinding;
 
 import java.io.File;
@@ -79,18 +78,16 @@ public class StaticAnalysisRunner {
     private static List<AnalysisFinding> runStaticAnalysis(
             File javaFile, File checkstyleConfig, File pmdRuleset) throws Exception {
 
-        System.out.println("Running Checkstyle...");
-        CheckstyleAnalyzer checkstyle = new CheckstyleAnalyzer();
-        List<AnalysisFinding> checkstyleFindings = checkstyle.analyze(javaFile, checkstyleConfig);
-        System.out.println("Checkstyle found " + checkstyleFindings.size() + " issues.");
-
-        System.out.println("Running PMD...");
-        PMDAnalyzer pmd = new PMDAnalyzer();
-        List<AnalysisFinding> pmdFindings = pmd.analyze(javaFile, pmdRuleset);
-        System.out.println("PMD found " + pmdFindings.size() + " issues.");
+        List<AnalysisFinding> all = new ArrayList<>();
+        try (StaticAnalysisPipeline pipeline = StaticAnalysisPipeline.checkstyleAndPmd(checkstyleConfig, pmdRuleset)) {
+            System.out.println("Running " + String.join(" and ", pipeline.engineNames()) + "...");
+            for (StaticAnalysisPipeline.EngineResult result : pipeline.run(javaFile)) {
+                all.addAll(result.findings());
+                System.out.println(result.engine() + " found " + result.findings().size()
+                    + " issues in " + result.elapsedMillis() + " ms.");
+            }
+        }
 
-        List<AnalysisFinding> all = new ArrayList<>(checkstyleFindings);
-        all.addAll(pmdFindings);
         System.out.println("Total findings: " + all.size());
         return all;
     }
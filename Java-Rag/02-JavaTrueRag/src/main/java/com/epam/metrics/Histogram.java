@@ -0,0 +1,71 @@
+package com.epam.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Prometheus-style histogram with fixed bucket upper bounds. Observations only touch
+ * striped adders, so request threads never contend on a lock. Instances are thread-safe;
+ * a scrape taken while observations are recorded may be off by those observations.
+ */
+public final class Histogram {
+
+    /** Bounds for stage durations in seconds, from cache hits up to slow LLM answers. */
+    public static final double[] SECONDS = {
+        0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120
+    };
+
+    /** Bounds for prompt and response sizes in tokens. */
+    public static final double[] TOKENS = {64, 128, 256, 512, 1024, 2048, 4096, 8192};
+
+    private final double[] bounds;
+    // One counter per bound plus the +Inf bucket; not cumulative, summed when written
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param bounds Bucket upper bounds, ascending; +Inf is added implicitly
+     */
+    public Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value The observed value, e.g. seconds
+     */
+    public void observe(double value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Writes the bucket, sum and count samples in the Prometheus text format.
+     *
+     * @param out Where the samples are appended
+     * @param name Metric name without the _bucket, _sum and _count suffixes
+     * @param labels Labels for every sample, e.g. {@code stage="retrieval"}, or an empty string
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            String le = i < bounds.length ? PipelineMetrics.format(bounds[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                .append(cumulative).append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(PipelineMetrics.format(sum.sum())).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+    }
+}
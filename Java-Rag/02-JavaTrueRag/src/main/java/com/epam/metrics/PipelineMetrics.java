@@ -0,0 +1,129 @@
+package com.epam.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Aggregates the stage spans of all requests and renders them, together with registered
+ * gauges and counters, in the Prometheus text exposition format.
+ * <p>
+ * Span durations go into a {@code rag_stage_duration_seconds} histogram per stage, and
+ * {@link StageTimings#PROMPT_TOKENS} and {@link StageTimings#RESPONSE_TOKENS} attributes go
+ * into token histograms. Cache hit counts are best registered as counters read from the
+ * caches themselves, which also see lookups outside of spans. Instances are thread-safe.
+ */
+public class PipelineMetrics {
+
+    /** Content type of {@link #scrape()} output. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private record Collector(String name, String type, String help, String labelName,
+                             Supplier<Map<String, ? extends Number>> samples) {
+    }
+
+    private final Map<String, Histogram> durations = new ConcurrentHashMap<>();
+    private final Histogram promptTokens = new Histogram(Histogram.TOKENS);
+    private final Histogram responseTokens = new Histogram(Histogram.TOKENS);
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates timings for one request whose spans are recorded here.
+     *
+     * @return New request timings
+     */
+    public StageTimings newTimings() {
+        return new StageTimings(this::record);
+    }
+
+    /**
+     * Records a finished span.
+     *
+     * @param span The span
+     */
+    public void record(StageTimings.Span span) {
+        durations.computeIfAbsent(span.stage(), stage -> new Histogram(Histogram.SECONDS))
+            .observe(span.nanos() / 1e9);
+        if (span.attributes().get(StageTimings.PROMPT_TOKENS) instanceof Number tokens) {
+            promptTokens.observe(tokens.doubleValue());
+        }
+        if (span.attributes().get(StageTimings.RESPONSE_TOKENS) instanceof Number tokens) {
+            responseTokens.observe(tokens.doubleValue());
+        }
+    }
+
+    /**
+     * Registers a value that can go up and down, read on every scrape.
+     *
+     * @param name Metric name, e.g. {@code rag_stage_queued_requests}
+     * @param help One-line description
+     * @param labelName Name of the label that tells the samples apart, or null for one sample
+     * @param samples Current values by label value; use the key "" when labelName is null
+     */
+    public void gauge(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> samples) {
+        collectors.add(new Collector(name, "gauge", help, labelName, samples));
+    }
+
+    /**
+     * Registers a total that only goes up, read on every scrape, e.g. cache hits kept by
+     * a cache itself.
+     *
+     * @param name Metric name ending in {@code _total}
+     * @param help One-line description
+     * @param labelName Name of the label that tells the samples apart, or null for one sample
+     * @param samples Current totals by label value; use the key "" when labelName is null
+     */
+    public void counter(String name, String help, String labelName, Supplier<Map<String, ? extends Number>> samples) {
+        collectors.add(new Collector(name, "counter", help, labelName, samples));
+    }
+
+    /**
+     * @return All metrics in the Prometheus text format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "rag_stage_duration_seconds", "histogram", "Time spent in each request stage.");
+        new TreeMap<>(durations).forEach((stage, histogram) ->
+            histogram.writeTo(out, "rag_stage_duration_seconds", "stage=\"" + escape(stage) + "\""));
+
+        header(out, "rag_prompt_tokens", "histogram", "Estimated size of the prompts sent to the LLM.");
+        promptTokens.writeTo(out, "rag_prompt_tokens", "");
+        header(out, "rag_response_tokens", "histogram", "Estimated size of the LLM answers.");
+        responseTokens.writeTo(out, "rag_response_tokens", "");
+
+        for (Collector collector : collectors) {
+            header(out, collector.name(), collector.type(), collector.help());
+            new TreeMap<>(collector.samples().get()).forEach((label, value) -> {
+                out.append(collector.name());
+                if (collector.labelName() != null) {
+                    out.append('{').append(collector.labelName()).append("=\"").append(escape(label)).append("\"}");
+                }
+                out.append(' ').append(format(value.doubleValue())).append('\n');
+            });
+        }
+        return out.toString();
+    }
+
+    /**
+     * Formats a sample value; whole numbers are written without a fraction.
+     */
+    static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,159 @@
+package com.epam.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Timing spans for the stages of one request, e.g. static analysis, retrieval,
+ * augmentation and generation.
+ * <p>
+ * A span is opened with {@link #start(String)} and recorded when it is closed, together
+ * with attributes such as token counts and whether a cache answered the stage. Every
+ * recorded span is also passed to an optional listener, which {@link PipelineMetrics}
+ * uses to feed its histograms. Instances are thread-safe.
+ */
+public class StageTimings {
+
+    /** Stage names shared by the pipeline, the server and the metrics. */
+    public static final String STATIC_ANALYSIS = "static-analysis";
+    public static final String INDEXING = "indexing";
+    public static final String RETRIEVAL = "retrieval";
+    public static final String AUGMENTATION = "augmentation";
+    public static final String GENERATION = "generation";
+
+    /** Common attribute names; the token counts also feed the {@link PipelineMetrics} histograms. */
+    public static final String CACHE_HIT = "cacheHit";
+    public static final String PROMPT_TOKENS = "promptTokens";
+    public static final String RESPONSE_TOKENS = "responseTokens";
+
+    /**
+     * A finished stage.
+     *
+     * @param stage Stage name
+     * @param nanos Time spent in the stage
+     * @param attributes Details such as token counts, in the order they were set
+     */
+    public record Span(String stage, long nanos, Map<String, Object> attributes) {
+
+        /**
+         * @return The duration in milliseconds, with microsecond precision
+         */
+        public double millis() {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+
+    /**
+     * A stage that is still running. Closing it records the span.
+     */
+    public final class OpenSpan implements AutoCloseable {
+        private final String stage;
+        private final long start = System.nanoTime();
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private boolean closed;
+
+        private OpenSpan(String stage) {
+            this.stage = stage;
+        }
+
+        /**
+         * Adds a detail to the span, replacing an earlier value with the same name.
+         *
+         * @param name Attribute name, e.g. {@link #CACHE_HIT}
+         * @param value A number, boolean or string
+         * @return This span
+         */
+        public OpenSpan attribute(String name, Object value) {
+            attributes.put(name, value);
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                record(new Span(stage, System.nanoTime() - start, Collections.unmodifiableMap(attributes)));
+            }
+        }
+    }
+
+    private final Consumer<Span> listener;
+    private final long start = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>();
+
+    /**
+     * Creates timings that are only kept for this request.
+     */
+    public StageTimings() {
+        this(span -> { });
+    }
+
+    /**
+     * Creates timings that also pass every finished span to a listener.
+     *
+     * @param listener Called with each span as it is closed
+     */
+    public StageTimings(Consumer<Span> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Opens a span; use it in a try-with-resources block around the stage.
+     *
+     * @param stage Stage name, e.g. {@link #RETRIEVAL}
+     * @return The running span
+     */
+    public OpenSpan start(String stage) {
+        return new OpenSpan(stage);
+    }
+
+    /**
+     * @return The finished spans, in the order they finished
+     */
+    public synchronized List<Span> spans() {
+        return List.copyOf(spans);
+    }
+
+    /**
+     * Describes the spans for a JSON response: the time since these timings were created
+     * and, per span, its stage, duration and attributes.
+     *
+     * @return A map that serializes to {"totalMs": ..., "stages": [...]}
+     */
+    public Map<String, Object> toMap() {
+        List<Map<String, Object>> stages = new ArrayList<>();
+        for (Span span : spans()) {
+            Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("stage", span.stage());
+            stage.put("ms", span.millis());
+            stage.putAll(span.attributes());
+            stages.add(stage);
+        }
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("totalMs", Math.round((System.nanoTime() - start) / 1_000.0) / 1_000.0);
+        timings.put("stages", stages);
+        return timings;
+    }
+
+    /**
+     * @return One line listing each stage and its duration, e.g. "retrieval 12 ms, generation 5230 ms"
+     */
+    public String summary() {
+        List<String> parts = new ArrayList<>();
+        for (Span span : spans()) {
+            parts.add(span.stage() + " " + Math.round(span.millis()) + " ms");
+        }
+        return String.join(", ", parts);
+    }
+
+    private void record(Span span) {
+        synchronized (this) {
+            spans.add(span);
+        }
+        listener.accept(span);
+    }
+}
@@ -0,0 +1,14 @@
+package com.epam.model;
+
+import java.util.List;
+
+/**
+ * The static analysis findings of one source file, together with its code, as reviewed
+ * in a multi-file prompt.
+ *
+ * @param path     Path of the file, as shown to the LLM and in reports
+ * @param code     The file's source code
+ * @param findings Findings reported for the file
+ */
+public record FileFindings(String path, String code, List<AnalysisFinding> findings) {
+}
@@ -0,0 +1,116 @@
+package com.epam.retrieval;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of a fixed set of keywords
+ * in a single left-to-right pass, independent of how many keywords there are.
+ * Instances are immutable once built and safe to share between threads.
+ */
+final class AhoCorasick {
+
+    /**
+     * Receives each keyword occurrence found in the scanned text.
+     */
+    @FunctionalInterface
+    interface MatchListener {
+        /**
+         * @param keywordId Index of the keyword in the list the automaton was built from
+         * @param end Offset just past the last character of the occurrence
+         */
+        void onMatch(int keywordId, int end);
+    }
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final int[] failure;
+    private final int[][] outputs;
+
+    /**
+     * Builds the automaton. Empty keywords are ignored.
+     *
+     * @param keywords Keywords to search for; ids reported to listeners are indexes into this list
+     */
+    AhoCorasick(List<String> keywords) {
+        List<List<Integer>> output = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        output.add(new ArrayList<>());
+
+        // Trie of all keywords
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.add(new HashMap<>());
+                    output.add(new ArrayList<>());
+                    transitions.get(state).put(c, next);
+                }
+                state = next;
+            }
+            output.get(state).add(id);
+        }
+
+        // Failure links in breadth-first order, so shorter suffixes are resolved first
+        failure = new int[transitions.size()];
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                char c = edge.getKey();
+                int target = edge.getValue();
+                queue.add(target);
+
+                int fallback = failure[state];
+                while (fallback != 0 && !transitions.get(fallback).containsKey(c)) {
+                    fallback = failure[fallback];
+                }
+                Integer link = transitions.get(fallback).get(c);
+                failure[target] = link != null && link != target ? link : 0;
+                output.get(target).addAll(output.get(failure[target]));
+            }
+        }
+
+        outputs = new int[output.size()][];
+        for (int state = 0; state < outputs.length; state++) {
+            outputs[state] = output.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Scans the text once and reports every keyword occurrence, including overlapping ones.
+     *
+     * @param text Text to scan
+     * @param listener Callback for each occurrence
+     */
+    void match(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (state != 0 && !transitions.get(state).containsKey(c)) {
+                state = failure[state];
+            }
+            state = transitions.get(state).getOrDefault(c, 0);
+            for (int keywordId : outputs[state]) {
+                listener.onMatch(keywordId, i + 1);
+            }
+        }
+    }
+
+    /**
+     * @return Number of states, a rough measure of the automaton's size
+     */
+    int stateCount() {
+        return outputs.length;
+    }
+}
@@ -0,0 +1,267 @@
+package com.epam.retrieval;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches in-memory indexes of uploaded knowledge bases, keyed by a SHA-256 hash of the
+ * JSON payload. Repeated requests with the same knowledge base reuse the index instead of
+ * rebuilding it, and nothing is written to disk.
+ * <p>
+ * Least recently used indexes are evicted once the cache holds more than a fixed number of
+ * knowledge bases or their indexes use more than a memory cap. Uploads larger than an input
+ * limit are rejected before anything is built, and an index that alone exceeds the memory cap
+ * is used for its request but never cached. Callers hold a {@link Lease}
+ * while searching; an evicted index is closed only after its last lease is released.
+ * Instances are thread-safe.
+ */
+public class InMemoryIndexCache implements Closeable {
+
+    /**
+     * Point-in-time cache metrics.
+     *
+     * @param hits Requests served by a cached index
+     * @param misses Requests that had to build an index
+     * @param entries Indexes currently cached
+     * @param bytes Memory used by the cached indexes
+     */
+    public record Stats(long hits, long misses, int entries, long bytes) {
+    }
+
+    /**
+     * Thrown when an uploaded knowledge base exceeds the input limit.
+     */
+    public static final class TooLargeException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private TooLargeException(long bytes, long maxInputBytes) {
+            super("Knowledge base is too large: " + bytes + " bytes, the limit is " + maxInputBytes + " bytes");
+        }
+    }
+
+    /**
+     * Access to one cached index. Must be closed after use.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final InMemoryIndexCache cache;
+        private final Entry entry;
+        private boolean released;
+
+        private Lease(InMemoryIndexCache cache, Entry entry) {
+            this.cache = cache;
+            this.entry = entry;
+        }
+
+        /**
+         * @return Searcher over the cached index
+         */
+        public KnowledgeBaseSearcher searcher() {
+            return entry.searcher;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                cache.release(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ByteBuffersDirectory directory;
+        private final KnowledgeBaseSearcher searcher;
+        private final long bytes;
+        private int leases;
+        private boolean evicted;
+
+        private Entry(ByteBuffersDirectory directory) throws IOException {
+            this.directory = directory;
+            this.searcher = new KnowledgeBaseSearcher(directory);
+            this.bytes = sizeOf(directory);
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxInputBytes;
+    private final KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private boolean closed;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries Maximum number of cached knowledge bases
+     * @param maxBytes Memory cap for all cached indexes together
+     * @param maxInputBytes Largest knowledge base payload, in UTF-8 bytes, that is indexed
+     */
+    public InMemoryIndexCache(int maxEntries, long maxBytes, long maxInputBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxInputBytes = maxInputBytes;
+    }
+
+    /**
+     * Returns a lease on the index of the given knowledge base, building it in memory on a miss.
+     *
+     * @param kbJson Knowledge base as a JSON array, a single entry or JSON Lines
+     * @return Lease on the index; close it when done searching
+     * @throws TooLargeException If the payload exceeds the input limit
+     * @throws Exception If the knowledge base cannot be parsed or indexed
+     */
+    public Lease acquire(String kbJson) throws Exception {
+        byte[] payload = kbJson.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > maxInputBytes) {
+            throw new TooLargeException(payload.length, maxInputBytes);
+        }
+        String key = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+
+        synchronized (this) {
+            Entry entry = lookup(key);
+            if (entry != null) {
+                hits++;
+                return new Lease(this, entry);
+            }
+            misses++;
+        }
+
+        // Indexing runs outside the lock so other knowledge bases stay available meanwhile
+        ByteBuffersDirectory directory = new ByteBuffersDirectory();
+        Entry built;
+        try (InputStream in = new ByteArrayInputStream(payload)) {
+            indexer.indexStream(in, directory);
+            built = new Entry(directory);
+        } catch (Exception e) {
+            directory.close();
+            throw e;
+        }
+
+        List<Entry> evicted;
+        Lease lease;
+        synchronized (this) {
+            Entry existing = lookup(key);
+            if (existing != null) {
+                // Another request built the same knowledge base first
+                closeEntry(built);
+                return new Lease(this, existing);
+            }
+            built.leases++;
+            lease = new Lease(this, built);
+            // Caching an index over the cap would only evict everything else and then itself
+            if (closed || built.bytes > maxBytes) {
+                built.evicted = true;
+                return lease;
+            }
+            entries.put(key, built);
+            totalBytes += built.bytes;
+            evicted = evictOverflow();
+        }
+        evicted.forEach(InMemoryIndexCache::closeEntry);
+        return lease;
+    }
+
+    /**
+     * @return Current cache metrics
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, entries.size(), totalBytes);
+    }
+
+    /**
+     * Evicts every index; those still leased are closed when released.
+     */
+    @Override
+    public void close() {
+        List<Entry> idle = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Entry entry : entries.values()) {
+                entry.evicted = true;
+                if (entry.leases == 0) {
+                    idle.add(entry);
+                }
+            }
+            entries.clear();
+            totalBytes = 0;
+        }
+        idle.forEach(InMemoryIndexCache::closeEntry);
+    }
+
+    /**
+     * Finds a cached entry and takes a lease on it. Must hold the lock.
+     */
+    private Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.leases++;
+        }
+        return entry;
+    }
+
+    /**
+     * Removes least recently used entries until both limits hold. Must hold the lock.
+     *
+     * @return Evicted entries that are not leased and can be closed
+     */
+    private List<Entry> evictOverflow() {
+        List<Entry> idle = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext() && (entries.size() > maxEntries || totalBytes > maxBytes)) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            totalBytes -= entry.bytes;
+            entry.evicted = true;
+            if (entry.leases == 0) {
+                idle.add(entry);
+            }
+        }
+        return idle;
+    }
+
+    private void release(Entry entry) {
+        boolean close;
+        synchronized (this) {
+            entry.leases--;
+            close = entry.evicted && entry.leases == 0;
+        }
+        if (close) {
+            closeEntry(entry);
+        }
+    }
+
+    /**
+     * Total length of the index files, which is what the directory's buffers hold.
+     */
+    private static long sizeOf(ByteBuffersDirectory directory) throws IOException {
+        long bytes = 0;
+        for (String file : directory.listAll()) {
+            bytes += directory.fileLength(file);
+        }
+        return bytes;
+    }
+
+    private static void closeEntry(Entry entry) {
+        try {
+            entry.searcher.close();
+            entry.directory.close();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not close in-memory knowledge base index: " + e.getMessage());
+        }
+    }
+}
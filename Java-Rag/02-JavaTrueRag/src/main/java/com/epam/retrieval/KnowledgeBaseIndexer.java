@@ -1,74 +1,809 @@
 package com.epam.retrieval;
 
+import com.epam.embedding.TextEmbedder;
 import com.epam.model.KnowledgeEntry;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SlowCodecReaderWrapper;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * Indexes knowledge base entries using Apache Lucene for fast retrieval.
  * Processes JSON files containing knowledge entries and creates a searchable index.
+ * Bulk knowledge bases can also be supplied as JSON Lines ({@code .jsonl}) files or as a
+ * stream holding a JSON array or a sequence of objects; these are read entry by entry with
+ * Jackson's streaming parser, so memory use does not grow with the size of the input.
+ * <p>
+ * Each document records the file it came from together with the file's content hash
+ * and modification time, so {@link #updateKnowledgeBase(String, String)} can refresh
+ * an existing index by touching only the files that changed.
+ * <p>
+ * Full indexing runs as a producer/consumer pipeline: files are read and parsed in parallel
+ * on a bounded pool, while the calling thread adds the resulting documents to the writer
+ * in batches, in file order.
+ * <p>
+ * Every entry also gets a dense vector of its title, description and tags from a
+ * {@link TextEmbedder}, indexed in an HNSW graph for {@link KnowledgeBaseSearcher}'s vector
+ * queries. The embedder's id is stored in the commit, and an update with a different
+ * embedder rebuilds the whole index, since vectors of different models cannot be mixed.
+ * <p>
+ * For serving, {@link #publishSnapshot(String, String)} copies the latest commit into a
+ * read-only snapshot merged down to a single segment, which
+ * {@link KnowledgeBaseSearcher#openSnapshot(java.nio.file.Path)} memory-maps.
  */
 public class KnowledgeBaseIndexer {
 
+    static final String SOURCE_FIELD = "source";
+    static final String SOURCE_HASH_FIELD = "source_hash";
+    static final String SOURCE_MTIME_FIELD = "source_mtime";
+    static final String VECTOR_FIELD = "embedding";
+    static final String EMBEDDER_KEY = "embedder";
+    static final String NO_EMBEDDER = "none";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String STAGING_SUFFIX = ".tmp";
+
+    private static final String JSON_SUFFIX = ".json";
+    private static final String JSON_LINES_SUFFIX = ".jsonl";
+
+    /**
+     * Summary of an incremental index update.
+     *
+     * @param added Files indexed for the first time
+     * @param updated Files whose content changed and were re-indexed
+     * @param deleted Files removed from the knowledge base and from the index
+     * @param unchanged Files skipped because their content did not change
+     */
+    public record IndexChanges(int added, int updated, int deleted, int unchanged) {
+        /**
+         * @return True if the update changed the index
+         */
+        public boolean hasChanges() {
+            return added + updated + deleted > 0;
+        }
+    }
+
+    /**
+     * Tuning knobs for bulk indexing.
+     *
+     * @param parserThreads Threads reading and parsing JSON files
+     * @param batchSize Documents handed to the writer per addDocuments call
+     * @param ramBufferMb Writer RAM buffer before a segment is flushed
+     * @param maxMergeAtOnce Segments merged at once by the tiered merge policy
+     * @param segmentsPerTier Segments allowed per tier before a merge is triggered
+     */
+    public record IndexingOptions(int parserThreads, int batchSize, double ramBufferMb,
+                                  int maxMergeAtOnce, double segmentsPerTier) {
+
+        public IndexingOptions {
+            if (parserThreads < 1 || batchSize < 1 || ramBufferMb <= 0 || maxMergeAtOnce < 2 || segmentsPerTier < 2) {
+                throw new IllegalArgumentException("Invalid indexing options: parserThreads=" + parserThreads
+                    + ", batchSize=" + batchSize + ", ramBufferMb=" + ramBufferMb
+                    + ", maxMergeAtOnce=" + maxMergeAtOnce + ", segmentsPerTier=" + segmentsPerTier);
+            }
+        }
+
+        /**
+         * @return One parser per core, batches of 256 documents and a 64 MB RAM buffer
+         */
+        public static IndexingOptions defaults() {
+            return new IndexingOptions(Runtime.getRuntime().availableProcessors(), 256, 64.0, 10, 10.0);
+        }
+    }
+
+    /**
+     * Throughput of a bulk indexing run.
+     *
+     * @param documents Documents written
+     * @param bytes Bytes of JSON read
+     * @param elapsedNanos Wall-clock time including the final commit
+     */
+    public record IndexingReport(int documents, long bytes, long elapsedNanos) {
+
+        public double docsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : documents * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : bytes / (1024.0 * 1024.0) * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        /**
+         * @return One-line human readable summary
+         */
+        public String summary() {
+            return String.format("%d docs, %.2f MB in %d ms (%.0f docs/sec, %.2f MB/sec)",
+                documents, bytes / (1024.0 * 1024.0), elapsedNanos / 1_000_000,
+                docsPerSecond(), megabytesPerSecond());
+        }
+    }
+
     /**
-     * Indexes all JSON knowledge base files from a directory into a Lucene index.
-     * 
+     * Last indexed state of one knowledge base file.
+     */
+    private record SourceState(String hash, long mtime) {
+    }
+
+    /**
+     * A knowledge base file parsed off the writer thread.
+     */
+    private record ParsedFile(Document document, long bytes) {
+    }
+
+    /**
+     * Receives each entry read from a stream.
+     */
+    @FunctionalInterface
+    private interface EntryHandler {
+        void accept(KnowledgeEntry entry) throws IOException;
+    }
+
+    private final IndexingOptions options;
+    private final TextEmbedder embedder;
+
+    /**
+     * Creates an indexer with {@link IndexingOptions#defaults()} and the
+     * {@link TextEmbedder#configured() configured} embedder.
+     */
+    public KnowledgeBaseIndexer() {
+        this(IndexingOptions.defaults());
+    }
+
+    /**
+     * Creates an indexer with explicit tuning options and the configured embedder.
+     *
+     * @param options Parser pool, batching and writer settings
+     */
+    public KnowledgeBaseIndexer(IndexingOptions options) {
+        this(options, TextEmbedder.configured());
+    }
+
+    /**
+     * Creates an indexer with explicit tuning options and embedder.
+     *
+     * @param options Parser pool, batching and writer settings
+     * @param embedder Embeds each entry for vector search, or null to index text only
+     */
+    public KnowledgeBaseIndexer(IndexingOptions options, TextEmbedder embedder) {
+        this.options = options;
+        this.embedder = embedder;
+    }
+
+    /**
+     * Indexes all JSON and JSON Lines knowledge base files from a directory into a Lucene index.
+     *
      * @param kbDirPath Path to a directory containing JSON knowledge base files
      * @param indexDirPath Path where Lucene index will be created/stored
+     * @return Number of documents, bytes read and throughput
      * @throws Exception If indexing fails due to I/O or parsing errors
      */
-    public void indexKnowledgeBase(String kbDirPath, String indexDirPath) throws Exception {
-        Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
-        Analyzer analyzer = new StandardAnalyzer();
-        IndexWriterConfig config = new IndexWriterConfig(analyzer);
-        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        
-        try (IndexWriter writer = new IndexWriter(indexDir, config)) {
+    public IndexingReport indexKnowledgeBase(String kbDirPath, String indexDirPath) throws Exception {
+        long start = System.nanoTime();
+        List<File> files = listSourceFiles(kbDirPath, JSON_SUFFIX);
+        int documents = 0;
+        long bytes = 0;
+
+        ExecutorService parsers = Executors.newFixedThreadPool(options.parserThreads());
+        try (Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
+             IndexWriter writer = openWriter(indexDir, IndexWriterConfig.OpenMode.CREATE)) {
             ObjectMapper mapper = new ObjectMapper();
-            File kbDir = new File(kbDirPath);
-            
-            // Process all JSON files in the knowledge base directory
-            File[] jsonFiles = kbDir.listFiles((dir, name) -> name.endsWith(".json"));
-            if (jsonFiles != null) {
-                for (File file : jsonFiles) {
-                    indexKnowledgeEntry(file, mapper, writer);
+            List<Document> batch = new ArrayList<>(options.batchSize());
+
+            // Bounded window of in-flight parses, consumed in file order
+            int window = options.parserThreads() * options.batchSize();
+            Deque<Future<ParsedFile>> inFlight = new ArrayDeque<>(window);
+            int next = 0;
+            while (next < files.size() || !inFlight.isEmpty()) {
+                while (next < files.size() && inFlight.size() < window) {
+                    File file = files.get(next++);
+                    inFlight.add(parsers.submit(() -> parseKnowledgeEntry(file, mapper)));
+                }
+
+                ParsedFile parsed = await(inFlight.poll());
+                bytes += parsed.bytes();
+                documents++;
+                addBatched(writer, batch, parsed.document());
+            }
+
+            // JSON Lines files are streamed on this thread, one entry at a time
+            for (File file : listSourceFiles(kbDirPath, JSON_LINES_SUFFIX)) {
+                documents += streamSourceFile(file, sha256(file), mapper, writer, batch);
+                bytes += file.length();
+            }
+            flush(writer, batch);
+
+            commit(writer, pendingPatterns(writer));
+        } finally {
+            parsers.shutdownNow();
+        }
+        return new IndexingReport(documents, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Indexes knowledge entries read from a stream into a Lucene index, replacing its contents.
+     * The stream may hold a JSON array of entries, a single entry, or a sequence of entries
+     * such as JSON Lines. Entries are parsed one at a time and written in batches.
+     *
+     * @param in Stream of JSON knowledge entries; not closed by this method
+     * @param indexDirPath Path where Lucene index will be created/stored
+     * @return Number of documents, bytes read and throughput
+     * @throws Exception If indexing fails due to I/O or parsing errors
+     */
+    public IndexingReport indexStream(InputStream in, String indexDirPath) throws Exception {
+        try (Directory indexDir = FSDirectory.open(Paths.get(indexDirPath))) {
+            return indexStream(in, indexDir);
+        }
+    }
+
+    /**
+     * Indexes knowledge entries read from a stream into the given index directory,
+     * replacing its contents.
+     *
+     * @param in Stream of JSON knowledge entries; not closed by this method
+     * @param indexDir Directory where the Lucene index will be created/stored
+     * @return Number of documents, bytes read and throughput
+     * @throws Exception If indexing fails due to I/O or parsing errors
+     * @see #indexStream(InputStream, String)
+     */
+    public IndexingReport indexStream(InputStream in, Directory indexDir) throws Exception {
+        long start = System.nanoTime();
+        try (IndexWriter writer = openWriter(indexDir, IndexWriterConfig.OpenMode.CREATE)) {
+            List<Document> batch = new ArrayList<>(options.batchSize());
+            int[] documents = {0};
+            long bytes = streamEntries(in, new ObjectMapper(), entry -> {
+                addBatched(writer, batch, toDocument(entry));
+                documents[0]++;
+            });
+            flush(writer, batch);
+            commit(writer, pendingPatterns(writer));
+            return new IndexingReport(documents[0], bytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Brings an existing index up to date with the knowledge base directory. A file is re-parsed
+     * only if both its modification time and its content hash changed; a file that was only touched
+     * gets its new modification time recorded. Files that disappeared are removed from the index.
+     * All changes become visible in a single commit, or not at all.
+     * Falls back to a full rebuild if the index was written without source tracking or
+     * with a different embedder.
+     *
+     * @param kbDirPath Path to a directory containing JSON knowledge base files
+     * @param indexDirPath Path of the Lucene index to update (created if missing)
+     * @return What changed in the index
+     * @throws Exception If indexing fails due to I/O or parsing errors
+     */
+    public IndexChanges updateKnowledgeBase(String kbDirPath, String indexDirPath) throws Exception {
+        try (Directory indexDir = FSDirectory.open(Paths.get(indexDirPath))) {
+            String indexedEmbedder = indexedEmbedder(indexDir);
+            boolean sameEmbedder = embedderId().equals(indexedEmbedder);
+            if (indexedEmbedder != null && !sameEmbedder) {
+                System.out.println("Index was embedded with " + indexedEmbedder + ", rebuilding for " + embedderId());
+            }
+            return updateKnowledgeBase(kbDirPath, indexDirPath, indexDir, sameEmbedder);
+        }
+    }
+
+    /**
+     * Applies the knowledge base changes to the index in the given directory, which the caller owns.
+     */
+    private IndexChanges updateKnowledgeBase(String kbDirPath, String indexDirPath, Directory indexDir,
+                                             boolean sameEmbedder) throws Exception {
+        try (IndexWriter writer = openWriter(indexDir, IndexWriterConfig.OpenMode.CREATE_OR_APPEND)) {
+            Map<String, SourceState> indexed = sameEmbedder ? readSourceStates(writer) : null;
+            if (indexed == null) {
+                writer.rollback();
+                indexKnowledgeBase(kbDirPath, indexDirPath);
+                return new IndexChanges(listSourceFiles(kbDirPath, JSON_SUFFIX, JSON_LINES_SUFFIX).size(), 0, 0, 0);
+            }
+
+            try {
+                int added = 0;
+                int updated = 0;
+                int unchanged = 0;
+                boolean touched = false;
+                ObjectMapper mapper = new ObjectMapper();
+                List<Document> batch = new ArrayList<>(options.batchSize());
+                for (File file : listSourceFiles(kbDirPath, JSON_SUFFIX, JSON_LINES_SUFFIX)) {
+                    String source = file.getName();
+                    long mtime = file.lastModified();
+                    SourceState previous = indexed.remove(source);
+                    if (previous != null && previous.mtime() == mtime) {
+                        unchanged++;
+                        continue;
+                    }
+
+                    // Touched files are only re-indexed if their content actually changed;
+                    // otherwise the new time is recorded, so the file is not hashed again
+                    String hash = sha256(file);
+                    if (previous != null && previous.hash().equals(hash)) {
+                        writer.updateNumericDocValue(new Term(SOURCE_FIELD, source), SOURCE_MTIME_FIELD, mtime);
+                        touched = true;
+                        unchanged++;
+                        continue;
+                    }
+
+                    if (source.endsWith(JSON_LINES_SUFFIX)) {
+                        writer.deleteDocuments(new Term(SOURCE_FIELD, source));
+                        streamSourceFile(file, hash, mapper, writer, batch);
+                        flush(writer, batch);
+                    } else {
+                        KnowledgeEntry entry = mapper.readValue(file, KnowledgeEntry.class);
+                        writer.updateDocument(new Term(SOURCE_FIELD, source), toDocument(entry, source, hash, mtime));
+                    }
+                    if (previous == null) {
+                        added++;
+                    } else {
+                        updated++;
+                    }
+                }
+
+                // Whatever is left was deleted from the knowledge base directory
+                for (String source : indexed.keySet()) {
+                    writer.deleteDocuments(new Term(SOURCE_FIELD, source));
+                }
+
+                IndexChanges changes = new IndexChanges(added, updated, indexed.size(), unchanged);
+                // Without changes nothing is committed, so searchers keep their current generation
+                if (changes.hasChanges() || touched) {
+                    commit(writer, pendingPatterns(writer));
+                }
+                return changes;
+            } catch (Exception e) {
+                writer.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Publishes the latest commit of an index as an immutable snapshot: its segments, without
+     * deleted documents, are merged into one segment in a new directory under the snapshot
+     * root, named after the commit. Snapshots are never written again, so searchers can
+     * memory-map them and keep every file preloaded.
+     * <p>
+     * Publishing a commit that already has a snapshot returns the existing one. Older
+     * snapshots are deleted, except the one published before, which searchers may still
+     * be reading.
+     *
+     * @param indexDirPath Path of the index to publish
+     * @param snapshotRootPath Directory holding the snapshots (created if missing)
+     * @return Directory of the snapshot
+     * @throws Exception If the index cannot be read or the snapshot cannot be written
+     */
+    public Path publishSnapshot(String indexDirPath, String snapshotRootPath) throws Exception {
+        Path root = Paths.get(snapshotRootPath);
+        Files.createDirectories(root);
+        try (Directory source = FSDirectory.open(Paths.get(indexDirPath));
+             DirectoryReader reader = DirectoryReader.open(source)) {
+            String commitId = HexFormat.of().formatHex(SegmentInfos.readCommit(
+                source, reader.getIndexCommit().getSegmentsFileName()).getId());
+            Path snapshot = root.resolve(SNAPSHOT_PREFIX + commitId);
+            if (Files.isDirectory(snapshot)) {
+                return snapshot;
+            }
+
+            // Written aside and renamed, so a snapshot directory is always complete
+            Path staging = root.resolve(snapshot.getFileName() + STAGING_SUFFIX);
+            deleteRecursively(staging);
+            try (Directory target = FSDirectory.open(staging);
+                 IndexWriter writer = openWriter(target, IndexWriterConfig.OpenMode.CREATE)) {
+                List<CodecReader> segments = new ArrayList<>();
+                for (LeafReaderContext context : reader.leaves()) {
+                    segments.add(SlowCodecReaderWrapper.wrap(context.reader()));
+                }
+                // Adding readers merges them all into a single new segment
+                writer.addIndexes(segments.toArray(CodecReader[]::new));
+                commit(writer, pendingPatterns(writer), reader.getIndexCommit().getUserData());
+            }
+            Files.move(staging, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            deleteOldSnapshots(root, snapshot);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Deletes all published snapshots but the given one and the newest of the others.
+     */
+    private static void deleteOldSnapshots(Path root, Path current) throws IOException {
+        List<Path> previous;
+        try (Stream<Path> children = Files.list(root)) {
+            previous = children
+                .filter(path -> Files.isDirectory(path) && !path.equals(current))
+                .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                .filter(path -> !path.getFileName().toString().endsWith(STAGING_SUFFIX))
+                .sorted(Comparator.comparingLong((Path path) -> path.toFile().lastModified()).reversed())
+                .toList();
+        }
+        for (Path old : previous.subList(Math.min(1, previous.size()), previous.size())) {
+            deleteRecursively(old);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Indexes already parsed knowledge entries into a Lucene index, replacing its contents.
+     *
+     * @param entries Knowledge entries to index
+     * @param indexDirPath Path where Lucene index will be created/stored
+     * @throws Exception If indexing fails due to I/O errors
+     */
+    public void indexEntries(List<KnowledgeEntry> entries, String indexDirPath) throws Exception {
+        try (Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
+             IndexWriter writer = openWriter(indexDir, IndexWriterConfig.OpenMode.CREATE)) {
+            List<Document> batch = new ArrayList<>(options.batchSize());
+            for (KnowledgeEntry entry : entries) {
+                addBatched(writer, batch, toDocument(entry));
+            }
+            flush(writer, batch);
+            commit(writer, PatternExpander.fromEntries(entries));
+        }
+    }
+
+    /**
+     * Opens a writer on the index, analyzing the n-gram subfields with {@link SubstringAnalyzer}
+     * and applying the RAM buffer and merge policy settings.
+     * The writer does not close the directory; the caller owns it.
+     */
+    private IndexWriter openWriter(Directory indexDir, IndexWriterConfig.OpenMode openMode) throws Exception {
+        Analyzer ngramAnalyzer = new SubstringAnalyzer();
+        Analyzer analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), Map.of(
+            SubstringAnalyzer.ngramField("title"), ngramAnalyzer,
+            SubstringAnalyzer.ngramField("description"), ngramAnalyzer,
+            SubstringAnalyzer.ngramField("tags"), ngramAnalyzer
+        ));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(openMode);
+        config.setRAMBufferSizeMB(options.ramBufferMb());
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setMaxMergeAtOnce(options.maxMergeAtOnce());
+        mergePolicy.setSegmentsPerTier(options.segmentsPerTier());
+        config.setMergePolicy(mergePolicy);
+        return new IndexWriter(indexDir, config);
+    }
+
+    /**
+     * Commits the writer's documents with the embedder id. Setting commit data counts as a
+     * change, so this is only called when documents change or the index is rebuilt.
+     */
+    private void commit(IndexWriter writer, PatternExpander patterns) throws IOException {
+        commit(writer, patterns, Map.of(EMBEDDER_KEY, embedderId()));
+    }
+
+    /**
+     * Commits the writer's documents together with the pattern file built from them, named
+     * in the commit data, then deletes the pattern files of earlier commits. A commit that
+     * fails or is rolled back leaves the pattern file of the latest commit in place.
+     */
+    private static void commit(IndexWriter writer, PatternExpander patterns, Map<String, String> commitData)
+            throws IOException {
+        Directory directory = writer.getDirectory();
+        // Generations only grow, also across rebuilds, so no commit reuses a live file name
+        long generation = Math.max(SegmentInfos.getLastCommitGeneration(directory), 0) + 1;
+        String patternsFile = patterns.save(directory, generation);
+        Map<String, String> data = new HashMap<>(commitData);
+        data.put(PatternExpander.COMMIT_KEY, patternsFile);
+        writer.setLiveCommitData(data.entrySet());
+        writer.commit();
+        PatternExpander.deleteUnused(directory, patternsFile);
+    }
+
+    private String embedderId() {
+        return embedder != null ? embedder.id() : NO_EMBEDDER;
+    }
+
+    /**
+     * Reads which embedder wrote the vectors of the latest commit.
+     *
+     * @return The embedder id, or null if there is no index or it was written without vectors
+     */
+    static String indexedEmbedder(Directory indexDir) throws IOException {
+        if (!DirectoryReader.indexExists(indexDir)) {
+            return null;
+        }
+        return SegmentInfos.readLatestCommit(indexDir).getUserData().get(EMBEDDER_KEY);
+    }
+
+    /**
+     * Reads which embedder wrote the vectors of the commit a reader was opened on.
+     *
+     * @return The embedder id, or null if the index was written without vectors
+     */
+    static String indexedEmbedder(DirectoryReader reader) throws IOException {
+        return reader.getIndexCommit().getUserData().get(EMBEDDER_KEY);
+    }
+
+    /**
+     * Reads the indexed hash and modification time of every source file. All documents of a
+     * source share them, so only the first live document of each source in a segment is read,
+     * and only its stored hash; the modification time is a doc value.
+     *
+     * @return State per source file name, or null if some document has no source information
+     *         or was indexed before modification times were doc values
+     */
+    private Map<String, SourceState> readSourceStates(IndexWriter writer) throws Exception {
+        Map<String, SourceState> states = new HashMap<>();
+        Set<String> hashField = Set.of(SOURCE_HASH_FIELD);
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            for (LeafReaderContext context : reader.leaves()) {
+                LeafReader leaf = context.reader();
+                Bits liveDocs = leaf.getLiveDocs();
+                StoredFields storedFields = leaf.storedFields();
+                NumericDocValues mtimes = leaf.getNumericDocValues(SOURCE_MTIME_FIELD);
+                Terms sources = leaf.terms(SOURCE_FIELD);
+                TermsEnum source = sources != null ? sources.iterator() : TermsEnum.EMPTY;
+                PostingsEnum postings = null;
+                int withSource = 0;
+                while (source.next() != null) {
+                    postings = source.postings(postings, PostingsEnum.NONE);
+                    int first = -1;
+                    for (int docId = postings.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = postings.nextDoc()) {
+                        if (liveDocs != null && !liveDocs.get(docId)) {
+                            continue;
+                        }
+                        if (first < 0) {
+                            first = docId;
+                        }
+                        withSource++;
+                    }
+                    String name = source.term().utf8ToString();
+                    if (first >= 0 && !states.containsKey(name)) {
+                        if (mtimes == null || !mtimes.advanceExact(first)) {
+                            return null;
+                        }
+                        String hash = storedFields.document(first, hashField).get(SOURCE_HASH_FIELD);
+                        states.put(name, new SourceState(hash, mtimes.longValue()));
+                    }
+                }
+                if (withSource != leaf.numDocs()) {
+                    return null;
                 }
             }
         }
+        return states;
+    }
+
+    private List<File> listSourceFiles(String kbDirPath, String... suffixes) {
+        File[] files = new File(kbDirPath).listFiles((dir, name) -> {
+            for (String suffix : suffixes) {
+                if (name.endsWith(suffix)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        return files != null ? List.of(files) : List.of();
     }
 
     /**
-     * Indexes a single knowledge entry JSON file into the Lucene index.
-     * 
+     * Streams a JSON Lines knowledge base file into the writer; every entry records the file as its source.
+     *
+     * @return Number of entries read
+     */
+    private int streamSourceFile(File file, String hash, ObjectMapper mapper, IndexWriter writer,
+                                 List<Document> batch) throws Exception {
+        String source = file.getName();
+        long mtime = file.lastModified();
+        int[] count = {0};
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            streamEntries(in, mapper, entry -> {
+                addBatched(writer, batch, toDocument(entry, source, hash, mtime));
+                count[0]++;
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * Reads knowledge entries one at a time from a JSON array, a single object, or a sequence
+     * of root-level objects (JSON Lines), without materializing the whole input.
+     *
+     * @return Number of bytes consumed
+     */
+    private static long streamEntries(InputStream in, ObjectMapper mapper, EntryHandler handler) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    handler.accept(mapper.readValue(parser, KnowledgeEntry.class));
+                }
+            } else {
+                while (token == JsonToken.START_OBJECT) {
+                    handler.accept(mapper.readValue(parser, KnowledgeEntry.class));
+                    token = parser.nextToken();
+                }
+            }
+            if (parser.currentToken() != null && parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Expected knowledge entry objects but found " + parser.currentToken()
+                    + " at " + parser.currentLocation());
+            }
+            return parser.currentLocation().getByteOffset();
+        }
+    }
+
+    private void addBatched(IndexWriter writer, List<Document> batch, Document doc) throws IOException {
+        batch.add(doc);
+        if (batch.size() >= options.batchSize()) {
+            flush(writer, batch);
+        }
+    }
+
+    private static void flush(IndexWriter writer, List<Document> batch) throws IOException {
+        if (!batch.isEmpty()) {
+            writer.addDocuments(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Builds the patterns of the writer's pending documents, for its next commit.
+     */
+    private static PatternExpander pendingPatterns(IndexWriter writer) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            return PatternExpander.fromIndex(new IndexSearcher(reader));
+        }
+    }
+
+    /**
+     * Reads and parses a single knowledge entry JSON file into a Lucene document.
+     * Runs on the parser pool; the shared ObjectMapper is thread-safe for reading.
+     *
      * @param file The JSON file containing knowledge entry
      * @param mapper Jackson ObjectMapper for JSON parsing
-     * @param writer Lucene IndexWriter for adding documents
+     * @return The parsed entry, its document and the file size
      * @throws Exception If file processing fails
      */
-    private void indexKnowledgeEntry(File file, ObjectMapper mapper, IndexWriter writer) throws Exception {
-        KnowledgeEntry entry = mapper.readValue(file, KnowledgeEntry.class);
+    private ParsedFile parseKnowledgeEntry(File file, ObjectMapper mapper) throws Exception {
+        long mtime = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+        KnowledgeEntry entry = mapper.readValue(content, KnowledgeEntry.class);
+        Document doc = toDocument(entry, file.getName(), sha256(content), mtime);
+        return new ParsedFile(doc, content.length);
+    }
+
+    /**
+     * Waits for a parse and rethrows its failure as is.
+     */
+    private static ParsedFile await(Future<ParsedFile> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Converts a knowledge entry read from a file into a Lucene document that remembers its source.
+     */
+    private Document toDocument(KnowledgeEntry entry, String source, String hash, long mtime) {
+        Document doc = toDocument(entry);
+        doc.add(new StringField(SOURCE_FIELD, source, Field.Store.YES));
+        doc.add(new StoredField(SOURCE_HASH_FIELD, hash));
+        doc.add(new NumericDocValuesField(SOURCE_MTIME_FIELD, mtime));
+        return doc;
+    }
+
+    /**
+     * Converts a knowledge entry into a Lucene document.
+     */
+    private Document toDocument(KnowledgeEntry entry) {
         Document doc = new Document();
-        
+        String tags = String.join(" ", entry.getTags());
+
         // Index all fields as searchable text
         doc.add(new TextField("title", entry.getTitle(), Field.Store.YES));
         doc.add(new StringField("type", entry.getType(), Field.Store.YES));
         doc.add(new TextField("description", entry.getDescription(), Field.Store.YES));
         doc.add(new TextField("example", entry.getExample(), Field.Store.YES));
         doc.add(new StringField("reference", entry.getReference(), Field.Store.YES));
-        doc.add(new TextField("tags", String.join(" ", entry.getTags()), Field.Store.YES));
-        
-        writer.addDocument(doc);
+        doc.add(new TextField("tags", tags, Field.Store.YES));
+
+        // N-gram subfields so substring matching is a term lookup (not stored)
+        doc.add(new TextField(SubstringAnalyzer.ngramField("title"), entry.getTitle(), Field.Store.NO));
+        doc.add(new TextField(SubstringAnalyzer.ngramField("description"), entry.getDescription(), Field.Store.NO));
+        doc.add(new TextField(SubstringAnalyzer.ngramField("tags"), tags, Field.Store.NO));
+
+        // Dense vector for semantic matching; entries without any words get none
+        if (embedder != null) {
+            float[] vector = embedder.embed(entry.getTitle() + "\n" + entry.getDescription() + "\n" + tags);
+            if (!isZero(vector)) {
+                doc.add(new KnnFloatVectorField(VECTOR_FIELD, vector, VectorSimilarityFunction.DOT_PRODUCT));
+            }
+        }
+
+        return doc;
+    }
+
+    private static boolean isZero(float[] vector) {
+        for (float value : vector) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    /**
+     * Hashes a file without loading it into memory.
+     */
+    private static String sha256(File file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
-}
\ No newline at end of file
+}
@@ -1,33 +1,194 @@
 package com.epam.retrieval;
 
+import com.epam.embedding.TextEmbedder;
+import com.epam.model.AnalysisFinding;
 import com.epam.model.KnowledgeEntry;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Searches the indexed knowledge base for entries relevant to analysis findings.
  * Uses Lucene to perform fast text-based searches across knowledge entries.
+ * <p>
+ * The index is opened once and shared through a {@link SearcherManager}: every search
+ * acquires a reference-counted {@link IndexSearcher}, the reader is refreshed when the
+ * index changes on disk, and {@link #close()} releases it. Instances are thread-safe
+ * and meant to live as long as the index they serve. The index may live on disk or in any
+ * Lucene {@link Directory}, such as an in-memory index of an uploaded knowledge base.
+ * <p>
+ * Retrieval is hybrid: the keyword query is ranked by BM25, the query's embedding is
+ * matched against the entry vectors with an HNSW kNN query, and the two rankings are
+ * merged by reciprocal rank fusion. An entry then scores {@code sum(1 / (60 + rank))}
+ * over the rankings it appears in, so neither score scale dominates. Vector matches below
+ * {@code -Drag.retrieval.minSimilarity} (cosine, default 0.15) are ignored, and the
+ * vector side is skipped if the index was written by a different embedder.
+ * <p>
+ * A searcher opened with {@link #openSnapshot(Path)} serves a snapshot published by
+ * {@link KnowledgeBaseIndexer#publishSnapshot(String, String)} instead: the snapshot is
+ * memory-mapped, its files up to {@code -Drag.index.preloadMb} (default 64) are loaded into
+ * the page cache when it is opened, and warm-up queries run before the first real one, so
+ * a freshly started server answers at steady-state latency. {@link #switchSnapshot(Path)}
+ * moves to a newer snapshot the same way, without blocking searches.
  */
-public class KnowledgeBaseSearcher {
+public class KnowledgeBaseSearcher implements Closeable {
+    /** Rank offset of reciprocal rank fusion; damps the weight of the very first ranks. */
+    private static final int RRF_K = 60;
+    private static final float MIN_SIMILARITY =
+        Float.parseFloat(System.getProperty("rag.retrieval.minSimilarity", "0.15"));
+    private static final long PRELOAD_MAX_BYTES = Long.getLong("rag.index.preloadMb", 64) * 1024 * 1024;
+    /** Stored field data is only read for the few hits returned, so it is left to page in on demand. */
+    private static final String STORED_FIELDS_DATA = ".fdt";
+    private static final int WARM_UP_DOCS = Integer.getInteger("rag.index.warmUpDocs", 64);
+    private static final int WARM_UP_HITS = 10;
+
     private final String indexDirPath;
-    private final Map<String, Set<String>> patternCache = new HashMap<>();
+    private final boolean ownsDirectory;
+    private final TextEmbedder embedder;
+    private final AtomicBoolean embedderMismatchReported = new AtomicBoolean();
+    private Directory directory;
+    private SearcherManager searcherManager;
+    private SynonymCache synonymCache = new SynonymCache();
+    private boolean closed;
 
     /**
-     * Creates a new knowledge base searcher.
+     * Creates a new knowledge base searcher with the {@link TextEmbedder#configured() configured} embedder.
      * 
      * @param indexDirPath Path to the Lucene index directory
      */
     public KnowledgeBaseSearcher(String indexDirPath) {
+        this(indexDirPath, TextEmbedder.configured());
+    }
+
+    /**
+     * Creates a new knowledge base searcher.
+     *
+     * @param indexDirPath Path to the Lucene index directory
+     * @param embedder Embeds queries for vector search, or null to search by keywords only
+     */
+    public KnowledgeBaseSearcher(String indexDirPath, TextEmbedder embedder) {
         this.indexDirPath = indexDirPath;
+        this.ownsDirectory = true;
+        this.embedder = embedder;
+    }
+
+    /**
+     * Creates a knowledge base searcher over an already opened index directory, with the
+     * configured embedder. The directory is not closed by this searcher; its owner controls
+     * its lifecycle.
+     *
+     * @param directory Directory holding the Lucene index
+     */
+    public KnowledgeBaseSearcher(Directory directory) {
+        this(directory, TextEmbedder.configured());
+    }
+
+    /**
+     * Creates a knowledge base searcher over an already opened index directory.
+     * The directory is not closed by this searcher; its owner controls its lifecycle.
+     *
+     * @param directory Directory holding the Lucene index
+     * @param embedder Embeds queries for vector search, or null to search by keywords only
+     */
+    public KnowledgeBaseSearcher(Directory directory, TextEmbedder embedder) {
+        this.indexDirPath = directory.toString();
+        this.directory = directory;
+        this.ownsDirectory = false;
+        this.embedder = embedder;
+    }
+
+    /**
+     * Opens a searcher over a published snapshot with the {@link TextEmbedder#configured() configured}
+     * embedder. The snapshot is memory-mapped, preloaded and warmed up before this method returns.
+     *
+     * @param snapshotDir Directory written by {@link KnowledgeBaseIndexer#publishSnapshot(String, String)}
+     * @return A searcher that owns the mapped snapshot
+     * @throws IOException If the snapshot cannot be opened
+     */
+    public static KnowledgeBaseSearcher openSnapshot(Path snapshotDir) throws IOException {
+        return openSnapshot(snapshotDir, TextEmbedder.configured());
+    }
+
+    /**
+     * Opens a searcher over a published snapshot. The snapshot is memory-mapped, preloaded
+     * and warmed up before this method returns.
+     *
+     * @param snapshotDir Directory written by {@link KnowledgeBaseIndexer#publishSnapshot(String, String)}
+     * @param embedder Embeds queries for vector search, or null to search by keywords only
+     * @return A searcher that owns the mapped snapshot
+     * @throws IOException If the snapshot cannot be opened
+     */
+    public static KnowledgeBaseSearcher openSnapshot(Path snapshotDir, TextEmbedder embedder) throws IOException {
+        KnowledgeBaseSearcher searcher = new KnowledgeBaseSearcher(snapshotDir.toString(), embedder);
+        searcher.switchSnapshot(snapshotDir);
+        return searcher;
+    }
+
+    /**
+     * Moves this searcher to another published snapshot. The new snapshot is memory-mapped,
+     * preloaded and warmed up before it replaces the current index; searches already running
+     * finish on the index they started with.
+     *
+     * @param snapshotDir Directory written by {@link KnowledgeBaseIndexer#publishSnapshot(String, String)}
+     * @throws IOException If the snapshot cannot be opened
+     */
+    public void switchSnapshot(Path snapshotDir) throws IOException {
+        if (!ownsDirectory) {
+            throw new IllegalStateException("Searcher over a caller-owned directory cannot switch snapshots: " + indexDirPath);
+        }
+        long start = System.nanoTime();
+        Directory mapped = mapSnapshot(snapshotDir);
+        SynonymCache patterns = new SynonymCache();
+        SearcherManager manager = null;
+        int queries;
+        try {
+            manager = new SearcherManager(mapped, searcherFactory(patterns));
+            queries = warmUp(manager);
+        } catch (Exception e) {
+            if (manager != null) {
+                manager.close();
+            }
+            mapped.close();
+            throw e instanceof IOException io ? io : new IOException("Could not warm up snapshot " + snapshotDir, e);
+        }
+
+        SearcherManager previousManager;
+        Directory previousDirectory;
+        synchronized (this) {
+            if (closed) {
+                manager.close();
+                mapped.close();
+                throw new IllegalStateException("Knowledge base searcher is closed: " + indexDirPath);
+            }
+            previousManager = searcherManager;
+            previousDirectory = directory;
+            searcherManager = manager;
+            directory = mapped;
+            synonymCache = patterns;
+        }
+        // Readers still held by running searches stay open until they are released
+        if (previousManager != null) {
+            previousManager.close();
+        }
+        if (previousDirectory != null) {
+            previousDirectory.close();
+        }
+        System.out.printf("Knowledge base snapshot %s opened, %d warm-up queries in %d ms%n",
+                snapshotDir, queries, (System.nanoTime() - start) / 1_000_000);
     }
 
     /**
@@ -39,49 +200,317 @@ public class KnowledgeBaseSearcher {
      * @throws Exception If search fails due to index or query issues
      */
     public List<KnowledgeEntry> search(String queryStr, int maxResults) throws Exception {
-        List<KnowledgeEntry> results = new ArrayList<>();
+        AcquiredSearcher acquired = acquireSearcher();
+        try {
+            return searchWith(acquired.searcher(), queryStr, maxResults).stream()
+                    .map(ScoredEntry::entry)
+                    .toList();
+        } finally {
+            acquired.release();
+        }
+    }
+
+    /**
+     * Searches the knowledge base for every finding in one pass over a single searcher.
+     * Findings that share the same issue are queried only once.
+     *
+     * @param findings Analysis findings to look up
+     * @param maxResultsPerFinding Maximum number of entries per finding
+     * @return Matching entries per finding, in the order of the given findings
+     * @throws Exception If search fails due to index or query issues
+     */
+    public Map<AnalysisFinding, List<KnowledgeEntry>> searchBatch(
+            List<AnalysisFinding> findings, int maxResultsPerFinding) throws Exception {
+        Map<AnalysisFinding, List<KnowledgeEntry>> results = new LinkedHashMap<>();
+        searchBatchScored(findings, maxResultsPerFinding).forEach((finding, hits) ->
+                results.put(finding, hits.stream().map(ScoredEntry::entry).toList()));
+        return results;
+    }
+
+    /**
+     * Searches the knowledge base for every finding and merges the per-finding results
+     * into one list, deduplicated by title and ordered by the best score of each entry.
+     * Scores are reciprocal rank fusion scores, so they compare across findings whether or
+     * not a finding had semantic matches.
+     *
+     * @param findings Analysis findings to look up
+     * @param maxResultsPerFinding Maximum number of entries considered per finding
+     * @param maxResults Maximum number of merged entries to return
+     * @return Merged knowledge entries, ordered by relevance
+     * @throws Exception If search fails due to index or query issues
+     */
+    public List<KnowledgeEntry> searchMerged(
+            List<AnalysisFinding> findings, int maxResultsPerFinding, int maxResults) throws Exception {
+        Map<String, ScoredEntry> bestByTitle = new LinkedHashMap<>();
+        for (List<ScoredEntry> hits : searchBatchScored(findings, maxResultsPerFinding).values()) {
+            for (ScoredEntry hit : hits) {
+                bestByTitle.merge(hit.entry().getTitle(), hit,
+                        (current, candidate) -> candidate.score() > current.score() ? candidate : current);
+            }
+        }
+        return bestByTitle.values().stream()
+                .sorted(Comparator.comparingDouble(ScoredEntry::score).reversed())
+                .limit(maxResults)
+                .map(ScoredEntry::entry)
+                .toList();
+    }
+
+    private Map<AnalysisFinding, List<ScoredEntry>> searchBatchScored(
+            List<AnalysisFinding> findings, int maxResultsPerFinding) throws Exception {
+        Map<AnalysisFinding, List<ScoredEntry>> results = new LinkedHashMap<>();
+        Map<String, List<ScoredEntry>> resultsByIssue = new HashMap<>();
+
+        AcquiredSearcher acquired = acquireSearcher();
+        try {
+            IndexSearcher searcher = acquired.searcher();
+            for (AnalysisFinding finding : findings) {
+                List<ScoredEntry> hits = resultsByIssue.get(finding.issue());
+                if (hits == null) {
+                    hits = searchWith(searcher, finding.issue(), maxResultsPerFinding);
+                    resultsByIssue.put(finding.issue(), hits);
+                }
+                results.put(finding, hits);
+            }
+        } finally {
+            acquired.release();
+        }
+
+        return results;
+    }
+
+    /**
+     * Runs one query against an already acquired searcher.
+     */
+    private List<ScoredEntry> searchWith(IndexSearcher searcher, String queryStr, int maxResults) throws Exception {
+        List<ScoredEntry> results = new ArrayList<>();
         Set<String> seenTitles = new HashSet<>();
 
-        Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
-        try (DirectoryReader reader = DirectoryReader.open(indexDir)) {
-            IndexSearcher searcher = new IndexSearcher(reader);
+        // Debug: Print what we're searching for
+        System.out.println("    Searching knowledge base for: '" + queryStr + "'");
+
+        // Search across multiple fields for better matching
+        Query query = buildMultiFieldQuery(searcher, queryStr);
+        int candidates = maxResults * 3; // fetch extra to allow for dedup
+
+        TopDocs topDocs = searcher.search(query, candidates);
+        System.out.println("    Found " + topDocs.totalHits.value + " potential matches");
+
+        // Semantic matches catch entries that share no keywords with the query
+        ScoreDoc[] vectorHits = vectorSearch(searcher, queryStr, candidates);
+        if (vectorHits.length > 0) {
+            System.out.println("    Found " + vectorHits.length + " semantic matches");
+        }
+        // Fused even with keyword hits only, so scores of different queries are comparable
+        ScoreDoc[] ranked = reciprocalRankFusion(topDocs.scoreDocs, vectorHits);
+
+        StoredFields storedFields = searcher.storedFields();
+        for (ScoreDoc scoreDoc : ranked) {
+            if (results.size() >= maxResults) break;
+            Document doc = storedFields.document(scoreDoc.doc);
+            KnowledgeEntry entry = documentToKnowledgeEntry(doc);
+            if (seenTitles.add(entry.getTitle())) {
+                System.out.println("    Match: " + entry.getTitle() + " (score: " + scoreDoc.score + ")");
+                results.add(new ScoredEntry(entry, scoreDoc.score));
+            }
+        }
 
-            // Debug: Print what we're searching for
-            System.out.println("    Searching knowledge base for: '" + queryStr + "'");
+        return results;
+    }
 
-            // Search across multiple fields for better matching
-            Query query = buildMultiFieldQuery(queryStr);
+    /**
+     * Finds the entries whose vectors are closest to the query's embedding.
+     *
+     * @return Hits at or above the minimum similarity, best first; empty if vectors cannot be used
+     */
+    private ScoreDoc[] vectorSearch(IndexSearcher searcher, String queryStr, int k) {
+        try {
+            if (!vectorsUsable((DirectoryReader) searcher.getIndexReader())) {
+                return new ScoreDoc[0];
+            }
+            Query query = new KnnFloatVectorQuery(KnowledgeBaseIndexer.VECTOR_FIELD, embedder.embed(queryStr), k);
+            // Lucene scores a dot product as (1 + similarity) / 2
+            float minScore = (1 + MIN_SIMILARITY) / 2;
+            return Arrays.stream(searcher.search(query, k).scoreDocs)
+                    .filter(hit -> hit.score >= minScore)
+                    .toArray(ScoreDoc[]::new);
+        } catch (Exception e) {
+            System.err.println("Warning: Vector search failed, using keyword matches only: " + e.getMessage());
+            return new ScoreDoc[0];
+        }
+    }
 
-            TopDocs topDocs = searcher.search(query, maxResults * 3); // fetch extra to allow for dedup
-            System.out.println("    Found " + topDocs.totalHits.value + " potential matches");
+    /**
+     * Checks that the index holds vectors written by this searcher's embedder.
+     */
+    private boolean vectorsUsable(DirectoryReader reader) throws IOException {
+        String indexed = KnowledgeBaseIndexer.indexedEmbedder(reader);
+        if (embedder == null || indexed == null || indexed.equals(KnowledgeBaseIndexer.NO_EMBEDDER)) {
+            return false;
+        }
+        if (!indexed.equals(embedder.id())) {
+            if (embedderMismatchReported.compareAndSet(false, true)) {
+                System.err.println("Warning: Index was embedded with " + indexed + " but queries use "
+                        + embedder.id() + "; re-index to enable vector search");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Merges rankings by reciprocal rank fusion: each document scores the sum of
+     * {@code 1 / (RRF_K + rank)} over the rankings it appears in, ranks starting at 1.
+     *
+     * @param rankings Hits of each retriever, best first
+     * @return The fused ranking, best first; the score of each hit is its fused score
+     */
+    static ScoreDoc[] reciprocalRankFusion(ScoreDoc[]... rankings) {
+        Map<Integer, Float> fused = new LinkedHashMap<>();
+        for (ScoreDoc[] ranking : rankings) {
+            for (int rank = 0; rank < ranking.length; rank++) {
+                fused.merge(ranking[rank].doc, 1f / (RRF_K + rank + 1), Float::sum);
+            }
+        }
+        return fused.entrySet().stream()
+                .map(e -> new ScoreDoc(e.getKey(), e.getValue()))
+                .sorted((a, b) -> Float.compare(b.score, a.score))
+                .toArray(ScoreDoc[]::new);
+    }
+
+    /**
+     * Releases the shared index reader. Searchers still in use by other threads
+     * stay valid until they are released.
+     *
+     * @throws IOException If the reader or directory cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (directory != null && ownsDirectory) {
+            directory.close();
+        }
+    }
+
+    /**
+     * Lazily opens the index on first use, so a searcher can be created before the index is built.
+     */
+    private synchronized SearcherManager searcherManager() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Knowledge base searcher is closed: " + indexDirPath);
+        }
+        if (searcherManager == null) {
+            if (directory == null) {
+                directory = FSDirectory.open(Paths.get(indexDirPath));
+            }
+            searcherManager = new SearcherManager(directory, searcherFactory(synonymCache));
+        }
+        return searcherManager;
+    }
+
+    /**
+     * Acquires the current searcher, first picking up any commit made since the last refresh.
+     * Every call must be paired with {@link AcquiredSearcher#release()}.
+     */
+    private AcquiredSearcher acquireSearcher() throws IOException {
+        SearcherManager manager = searcherManager();
+        manager.maybeRefresh();
+        return new AcquiredSearcher(manager, manager.acquire());
+    }
+
+    /**
+     * Memory-maps a snapshot, preloading every file up to {@link #PRELOAD_MAX_BYTES} except
+     * stored field data: the terms, postings, norms and vector graph are touched by every query.
+     */
+    private static Directory mapSnapshot(Path snapshotDir) throws IOException {
+        MMapDirectory mapped = new MMapDirectory(snapshotDir);
+        mapped.setPreload((name, context) -> {
+            if (name.endsWith(STORED_FIELDS_DATA)) {
+                return false;
+            }
+            try {
+                return Files.size(snapshotDir.resolve(name)) <= PRELOAD_MAX_BYTES;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * Runs the title and tags of the first documents as queries, so the pattern file, the
+     * query path and the parts of the index they touch are loaded before real searches.
+     *
+     * @return Number of warm-up queries run
+     */
+    private int warmUp(SearcherManager manager) throws Exception {
+        IndexSearcher searcher = manager.acquire();
+        try {
             StoredFields storedFields = searcher.storedFields();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                if (results.size() >= maxResults) break;
-                Document doc = storedFields.document(scoreDoc.doc);
-                KnowledgeEntry entry = documentToKnowledgeEntry(doc);
-                if (seenTitles.add(entry.getTitle())) {
-                    System.out.println("    Match: " + entry.getTitle() + " (score: " + scoreDoc.score + ")");
-                    results.add(entry);
+            List<String> queries = new ArrayList<>();
+            int docs = Math.min(WARM_UP_DOCS, searcher.getIndexReader().maxDoc());
+            for (int docId = 0; docId < docs; docId++) {
+                Document doc = storedFields.document(docId);
+                for (String queryStr : new String[] {doc.get("title"), doc.get("tags")}) {
+                    if (queryStr != null && !queryStr.isBlank()) {
+                        queries.add(queryStr);
+                    }
+                }
+            }
+            if (queries.isEmpty()) {
+                return 0;
+            }
+
+            // One query takes the full search path, so its one-time setup is not left to a request
+            searchWith(searcher, queries.get(0), WARM_UP_HITS);
+            for (String queryStr : queries.subList(1, queries.size())) {
+                Query query = buildMultiFieldQuery(searcher, queryStr);
+                for (ScoreDoc hit : searcher.search(query, WARM_UP_HITS).scoreDocs) {
+                    storedFields.document(hit.doc);
                 }
+                vectorSearch(searcher, queryStr, WARM_UP_HITS);
             }
+            return queries.size();
+        } finally {
+            manager.release(searcher);
         }
+    }
 
-        return results;
+    /**
+     * Creates searchers that carry the synonym cache of the index they read. Reader versions
+     * start over in every snapshot, so the cache must follow the searcher, not this instance.
+     */
+    private static SearcherFactory searcherFactory(SynonymCache patterns) {
+        return new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                return new PatternIndexSearcher(reader, patterns);
+            }
+        };
     }
 
     /**
      * Builds a multi-field query to search across title, description, and tags.
      * Enhanced to match common static analysis rule names with knowledge base entries.
      * 
+     * @param searcher The acquired searcher the query will run against
      * @param queryStr The search query string
      * @return Lucene Query object for searching
      */
-    private Query buildMultiFieldQuery(String queryStr) {
+    private Query buildMultiFieldQuery(IndexSearcher searcher, String queryStr) {
         BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
         
         // Normalize query string
         String normalizedQuery = queryStr.toLowerCase();
         
+        // Related terms from the knowledge base, shared by all fields
+        Map<String, Integer> relatedTerms = expandPatterns(searcher, normalizedQuery);
+        
         // Search in multiple fields with different strategies
         String[] fields = {"title", "description", "tags"};
         
@@ -90,108 +519,98 @@ public class KnowledgeBaseSearcher {
             Query exactQuery = new TermQuery(new Term(field, normalizedQuery));
             booleanQuery.add(exactQuery, BooleanClause.Occur.SHOULD);
             
-            // Partial match with wildcards
-            if (normalizedQuery.length() > 2) {
-                Query wildcardQuery = new WildcardQuery(new Term(field, "*" + normalizedQuery + "*"));
-                booleanQuery.add(wildcardQuery, BooleanClause.Occur.SHOULD);
+            // Partial match through the n-gram subfield
+            Query substringQuery = substringQuery(field, normalizedQuery);
+            if (substringQuery != null) {
+                booleanQuery.add(substringQuery, BooleanClause.Occur.SHOULD);
             }
             
             // Handle dynamic pattern matching
-            addDynamicPatternQueries(booleanQuery, field, normalizedQuery);
+            addDynamicPatternQueries(booleanQuery, field, relatedTerms);
         }
         
         return booleanQuery.build();
     }
     
     /**
-     * Dynamically adds pattern-based queries by extracting keywords from knowledge base entries.
+     * Builds a substring query for a field using its n-gram subfield. Matches the same documents
+     * as {@code WildcardQuery("*" + substring + "*")} with the same constant score, but resolves
+     * to term lookups instead of a scan of the term dictionary.
+     * <p>
+     * A substring longer than {@link SubstringAnalyzer#MAX_GRAM} is not indexed as one gram; it
+     * matches a token holding all of its overlapping grams, which share the token's position.
+     * That is the wildcard result except for a token repeating an 11-character sequence, e.g.
+     * twelve a's match a query of thirteen.
+     *
+     * @param field The analyzed text field (title, description or tags)
+     * @param substring Lowercased substring to look for within a single token
+     * @return Substring query, or null if the substring is too short or spans several tokens
      */
-    private void addDynamicPatternQueries(BooleanQuery.Builder booleanQuery, String field, String queryStr) {
-        try {
-            if (patternCache.isEmpty()) {
-                buildPatternCache();
-            }
-            
-            // Find matching patterns for the query
-            for (Map.Entry<String, Set<String>> entry : patternCache.entrySet()) {
-                String pattern = entry.getKey();
-                Set<String> relatedTerms = entry.getValue();
-                
-                if (queryStr.contains(pattern)) {
-                    for (String term : relatedTerms) {
-                        booleanQuery.add(new TermQuery(new Term(field, term)), BooleanClause.Occur.SHOULD);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Warning: Could not build dynamic patterns: " + e.getMessage());
+    public static Query substringQuery(String field, String substring) {
+        if (substring.length() < SubstringAnalyzer.MIN_GRAM || substring.chars().anyMatch(Character::isWhitespace)) {
+            return null;
+        }
+
+        String ngramField = SubstringAnalyzer.ngramField(field);
+        if (substring.length() <= SubstringAnalyzer.MAX_GRAM) {
+            return new ConstantScoreQuery(new TermQuery(new Term(ngramField, substring)));
+        }
+
+        // Longer than the largest gram: every overlapping gram, all within the same token.
+        // The grams of a token are indexed at its position, so a phrase of grams at one
+        // position cannot be satisfied by grams of different tokens
+        Set<String> grams = new LinkedHashSet<>();
+        for (int start = 0; start + SubstringAnalyzer.MAX_GRAM <= substring.length(); start++) {
+            grams.add(substring.substring(start, start + SubstringAnalyzer.MAX_GRAM));
         }
+        PhraseQuery.Builder sameToken = new PhraseQuery.Builder();
+        for (String gram : grams) {
+            sameToken.add(new Term(ngramField, gram), 0);
+        }
+        return new ConstantScoreQuery(sameToken.build());
     }
-    
+
     /**
-     * Builds a cache of patterns by extracting keywords from all knowledge base entries.
+     * Dynamically adds pattern-based queries for the related terms found in the knowledge base.
      */
-    private void buildPatternCache() throws Exception {
-        Directory indexDir = FSDirectory.open(Paths.get(indexDirPath));
-        try (DirectoryReader reader = DirectoryReader.open(indexDir)) {
-            IndexSearcher searcher = new IndexSearcher(reader);
-            
-            Query query = new MatchAllDocsQuery();
-            TopDocs topDocs = searcher.search(query, Integer.MAX_VALUE);
-            StoredFields storedFields = searcher.storedFields();
-
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                Document doc = storedFields.document(scoreDoc.doc);
-                extractPatternsFromDocument(doc);
-            }
-        }
+    private void addDynamicPatternQueries(BooleanQuery.Builder booleanQuery, String field, Map<String, Integer> relatedTerms) {
+        relatedTerms.forEach((term, weight) -> {
+            Query termQuery = new TermQuery(new Term(field, term));
+            booleanQuery.add(weight > 1 ? new BoostQuery(termQuery, weight) : termQuery, BooleanClause.Occur.SHOULD);
+        });
     }
-    
+
     /**
-     * Extracts searchable patterns from a knowledge base document.
+     * Expands the query with related knowledge base terms, computed once for all fields
+     * against the pattern generation matching the searcher's index version.
      */
-    private void extractPatternsFromDocument(Document doc) {
-        String title = doc.get("title");
-        String description = doc.get("description");
-        String tags = doc.get("tags");
-        
-        Set<String> allTerms = new HashSet<>();
-        
-        // Extract terms from title, description, and tags
-        if (title != null) {
-            allTerms.addAll(extractKeywords(title));
-        }
-        if (description != null) {
-            allTerms.addAll(extractKeywords(description));
-        }
-        if (tags != null) {
-            allTerms.addAll(Arrays.asList(tags.split(" ")));
-        }
-        
-        // Create bidirectional mappings between terms
-        for (String term : allTerms) {
-            patternCache.computeIfAbsent(term.toLowerCase(), k -> new HashSet<>()).addAll(
-                allTerms.stream().map(String::toLowerCase).collect(Collectors.toSet())
-            );
+    private Map<String, Integer> expandPatterns(IndexSearcher searcher, String queryStr) {
+        try {
+            long version = ((DirectoryReader) searcher.getIndexReader()).getVersion();
+            SynonymCache patterns = ((PatternIndexSearcher) searcher).patterns();
+            return patterns.expand(version, queryStr, () -> loadPatternExpander(searcher));
+        } catch (Exception e) {
+            System.err.println("Warning: Could not build dynamic patterns: " + e.getMessage());
+            return Map.of();
         }
     }
-    
+
     /**
-     * Extracts meaningful keywords from text.
+     * Loads the pattern expander stored with the searcher's commit, or builds it from the
+     * indexed documents when the commit has none.
      */
-    private Set<String> extractKeywords(String text) {
-        return Arrays.stream(text.toLowerCase().split("[\\s,.-]+"))
-                .filter(word -> word.length() > 2)
-                .filter(word -> !isStopWord(word))
-                .collect(Collectors.toSet());
+    private PatternExpander loadPatternExpander(IndexSearcher searcher) throws IOException {
+        PatternExpander stored = PatternExpander.load((DirectoryReader) searcher.getIndexReader());
+        return stored != null ? stored : PatternExpander.fromIndex(searcher);
     }
-    
+
     /**
-     * Simple stop word filter.
+     * Returns hit rate, size and memory metrics of the synonym cache.
+     *
+     * @return Current synonym cache metrics
      */
-    private boolean isStopWord(String word) {
-        Set<String> stopWords = Set.of("the", "and", "for", "are", "but", "not", "you", "all", "can", "had", "her", "was", "one", "our", "out", "day", "get", "has", "him", "his", "how", "its", "may", "new", "now", "old", "see", "two", "who", "boy", "did", "she", "use", "way", "will", "with");
-        return stopWords.contains(word);
+    public synchronized SynonymCache.Stats synonymStats() {
+        return synonymCache.stats();
     }
 
     /**
@@ -217,4 +636,36 @@ public class KnowledgeBaseSearcher {
         
         return entry;
     }
+
+    /**
+     * An index searcher together with the synonym cache of the index it reads.
+     */
+    private static final class PatternIndexSearcher extends IndexSearcher {
+        private final SynonymCache patterns;
+
+        PatternIndexSearcher(IndexReader reader, SynonymCache patterns) {
+            super(reader);
+            this.patterns = patterns;
+        }
+
+        SynonymCache patterns() {
+            return patterns;
+        }
+    }
+
+    /**
+     * A searcher together with the manager it was acquired from. It is released to that
+     * manager even if this searcher was closed or switched to a snapshot in the meantime.
+     */
+    private record AcquiredSearcher(SearcherManager manager, IndexSearcher searcher) {
+        void release() throws IOException {
+            manager.release(searcher);
+        }
+    }
+
+    /**
+     * A knowledge entry together with the score of the query that retrieved it.
+     */
+    private record ScoredEntry(KnowledgeEntry entry, float score) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,321 @@
+package com.epam.retrieval;
+
+import com.epam.model.KnowledgeEntry;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Bits;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Expands search queries with related terms taken from the knowledge base.
+ * <p>
+ * Every knowledge entry contributes one group of keywords (from its title, description
+ * and tags). When a keyword occurs anywhere in a query, all keywords of the entries that
+ * contain it are added to the query. Keywords are located with an Aho-Corasick automaton,
+ * so expansion is a single pass over the query regardless of the number of keywords.
+ * <p>
+ * The groups are built at index time and stored next to the Lucene index, one file per
+ * commit, named in that commit's user data. A searcher loads the file of the commit its
+ * reader was opened on, so it never sees patterns of documents it cannot see.
+ * Instances are immutable.
+ */
+public final class PatternExpander {
+
+    /** Commit user data key naming the pattern file of the commit. */
+    public static final String COMMIT_KEY = "patterns";
+
+    private static final String FILE_PREFIX = "kb-patterns";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private static final String CODEC_NAME = "KnowledgeBasePatterns";
+    private static final int VERSION = 0;
+    private static final Set<String> SOURCE_FIELDS = Set.of("title", "description", "tags");
+    private static final Set<String> STOP_WORDS = Set.of("the", "and", "for", "are", "but", "not", "you", "all", "can", "had", "her", "was", "one", "our", "out", "day", "get", "has", "him", "his", "how", "its", "may", "new", "now", "old", "see", "two", "who", "boy", "did", "she", "use", "way", "will", "with");
+
+    private final List<List<String>> groups;
+    private final int[][] termGroups;
+    private final AhoCorasick automaton;
+
+    private PatternExpander(List<List<String>> groups) {
+        this.groups = groups;
+
+        // Two passes over primitive arrays: count the groups of each term, then fill them in
+        Map<String, Integer> termIds = new LinkedHashMap<>();
+        int[] counts = new int[16];
+        for (List<String> group : groups) {
+            for (String term : group) {
+                int id = termIds.computeIfAbsent(term, k -> termIds.size());
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+                counts[id]++;
+            }
+        }
+
+        this.termGroups = new int[termIds.size()][];
+        for (int t = 0; t < termGroups.length; t++) {
+            termGroups[t] = new int[counts[t]];
+        }
+        int[] filled = new int[termGroups.length];
+        for (int g = 0; g < groups.size(); g++) {
+            for (String term : groups.get(g)) {
+                int id = termIds.get(term);
+                termGroups[id][filled[id]++] = g;
+            }
+        }
+        this.automaton = new AhoCorasick(new ArrayList<>(termIds.keySet()));
+    }
+
+    /**
+     * Builds the expander from parsed knowledge entries.
+     *
+     * @param entries Knowledge entries being indexed
+     * @return Expander over the entries' keywords
+     */
+    public static PatternExpander fromEntries(Collection<KnowledgeEntry> entries) {
+        GroupCollector groups = new GroupCollector();
+        for (KnowledgeEntry entry : entries) {
+            String tags = entry.getTags() != null ? String.join(" ", entry.getTags()) : null;
+            groups.add(termsOf(entry.getTitle(), entry.getDescription(), tags));
+        }
+        return new PatternExpander(groups.groups);
+    }
+
+    /**
+     * Builds the expander by reading the stored fields of every indexed document.
+     * Used for commits that have no pattern file, or no longer have one.
+     *
+     * @param searcher Searcher over the knowledge base index
+     * @return Expander over the indexed documents' keywords
+     * @throws IOException If the stored fields cannot be read
+     */
+    public static PatternExpander fromIndex(IndexSearcher searcher) throws IOException {
+        GroupCollector groups = new GroupCollector();
+        IndexReader reader = searcher.getIndexReader();
+        StoredFields storedFields = reader.storedFields();
+        Bits liveDocs = MultiBits.getLiveDocs(reader);
+        for (int docId = 0; docId < reader.maxDoc(); docId++) {
+            if (liveDocs != null && !liveDocs.get(docId)) {
+                continue;
+            }
+            Document doc = storedFields.document(docId, SOURCE_FIELDS);
+            groups.add(termsOf(doc.get("title"), doc.get("description"), doc.get("tags")));
+        }
+        return new PatternExpander(groups.groups);
+    }
+
+    /**
+     * Loads the expander stored with the commit a reader was opened on.
+     *
+     * @param reader Reader over the knowledge base index
+     * @return The stored expander, or null if the commit names no pattern file or a later
+     *         commit has already replaced it
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    public static PatternExpander load(DirectoryReader reader) throws IOException {
+        String fileName = reader.getIndexCommit().getUserData().get(COMMIT_KEY);
+        if (fileName == null) {
+            return null;
+        }
+        try (ChecksumIndexInput in = reader.directory().openChecksumInput(fileName, IOContext.READONCE)) {
+            CodecUtil.checkHeader(in, CODEC_NAME, VERSION, VERSION);
+            int groupCount = in.readVInt();
+            GroupCollector groups = new GroupCollector();
+            for (int g = 0; g < groupCount; g++) {
+                int size = in.readVInt();
+                Set<String> group = new LinkedHashSet<>(size);
+                for (int t = 0; t < size; t++) {
+                    group.add(in.readString());
+                }
+                groups.add(group);
+            }
+            CodecUtil.checkFooter(in);
+            return new PatternExpander(groups.groups);
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the expander into an index directory as the pattern file of a commit that is
+     * about to be made. The caller names the file in that commit's user data under
+     * {@link #COMMIT_KEY}; the files of earlier commits are left untouched.
+     *
+     * @param directory The index directory
+     * @param generation Generation of the commit the file belongs to
+     * @return Name of the written file
+     * @throws IOException If the file cannot be written
+     */
+    public String save(Directory directory, long generation) throws IOException {
+        String fileName = FILE_PREFIX + "_" + generation + FILE_SUFFIX;
+        String tempName;
+        try (IndexOutput out = directory.createTempOutput(FILE_PREFIX, "tmp", IOContext.DEFAULT)) {
+            tempName = out.getName();
+            CodecUtil.writeHeader(out, CODEC_NAME, VERSION);
+            out.writeVInt(groups.size());
+            for (List<String> group : groups) {
+                out.writeVInt(group.size());
+                for (String term : group) {
+                    out.writeString(term);
+                }
+            }
+            CodecUtil.writeFooter(out);
+        }
+        directory.sync(List.of(tempName));
+        // Left over by a commit of the same generation that was rolled back
+        if (Arrays.asList(directory.listAll()).contains(fileName)) {
+            directory.deleteFile(fileName);
+        }
+        directory.rename(tempName, fileName);
+        directory.syncMetaData();
+        return fileName;
+    }
+
+    /**
+     * Deletes every pattern file but the one of the latest commit. Readers of older commits
+     * that have not loaded their patterns yet rebuild them from the index.
+     *
+     * @param directory The index directory
+     * @param current Pattern file of the latest commit
+     */
+    public static void deleteUnused(Directory directory, String current) {
+        try {
+            for (String fileName : directory.listAll()) {
+                if (fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX) && !fileName.equals(current)) {
+                    directory.deleteFile(fileName);
+                }
+            }
+        } catch (IOException e) {
+            // Retried after the next commit
+            System.err.println("Warning: Could not delete old pattern files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the related terms for every keyword occurring in the query. Each term is weighted
+     * by the number of distinct keywords in the query it is related to, so terms shared by
+     * several matched keywords count more.
+     *
+     * @param query Lowercased query string
+     * @return Related terms with their weights, empty if no keyword occurs
+     */
+    public Map<String, Integer> expand(String query) {
+        BitSet matchedTerms = new BitSet(termGroups.length);
+        automaton.match(query, (termId, end) -> matchedTerms.set(termId));
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        matchedTerms.stream().forEach(termId -> {
+            Set<String> related = new HashSet<>();
+            for (int group : termGroups[termId]) {
+                related.addAll(groups.get(group));
+            }
+            related.forEach(term -> weights.merge(term, 1, Integer::sum));
+        });
+        return weights;
+    }
+
+    /**
+     * @return Number of distinct keywords
+     */
+    public int termCount() {
+        return termGroups.length;
+    }
+
+    /**
+     * Rough heap footprint of the keyword groups, the keyword index and the automaton.
+     *
+     * @return Estimated size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (List<String> group : groups) {
+            bytes += 40;
+            for (String term : group) {
+                bytes += 8 + 40 + 2L * term.length();
+            }
+        }
+        for (int[] termGroup : termGroups) {
+            bytes += 16 + 4L * termGroup.length;
+        }
+        return bytes + 96L * automaton.stateCount();
+    }
+
+    /**
+     * Collects keyword groups, sharing one String instance per distinct keyword and dropping
+     * groups identical to an earlier one. Duplicates never change an expansion, since related
+     * terms are a union over groups, so large knowledge bases only pay for what is distinct.
+     */
+    private static final class GroupCollector {
+        private final List<List<String>> groups = new ArrayList<>();
+        private final Set<List<String>> seen = new HashSet<>();
+        private final Map<String, String> terms = new HashMap<>();
+
+        void add(Set<String> group) {
+            if (group.isEmpty()) {
+                return;
+            }
+            List<String> interned = new ArrayList<>(group.size());
+            for (String term : group) {
+                interned.add(terms.computeIfAbsent(term, t -> t));
+            }
+            List<String> copy = List.copyOf(interned);
+            if (seen.add(copy)) {
+                groups.add(copy);
+            }
+        }
+    }
+
+    /**
+     * Extracts the lowercased keywords of one knowledge entry.
+     */
+    private static Set<String> termsOf(String title, String description, String tags) {
+        Set<String> allTerms = new HashSet<>();
+        if (title != null) {
+            allTerms.addAll(extractKeywords(title));
+        }
+        if (description != null) {
+            allTerms.addAll(extractKeywords(description));
+        }
+        if (tags != null) {
+            allTerms.addAll(Arrays.asList(tags.split(" ")));
+        }
+        return allTerms.stream()
+                .map(String::toLowerCase)
+                .filter(term -> !term.isBlank())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Extracts meaningful keywords from text.
+     */
+    private static Set<String> extractKeywords(String text) {
+        return Arrays.stream(text.toLowerCase().split("[\\s,.-]+"))
+                .filter(word -> word.length() > 2)
+                .filter(word -> !STOP_WORDS.contains(word))
+                .collect(Collectors.toSet());
+    }
+}
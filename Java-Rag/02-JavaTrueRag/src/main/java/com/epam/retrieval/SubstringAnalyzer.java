@@ -0,0 +1,43 @@
+package com.epam.retrieval;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ngram.NGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * Analyzer for the n-gram subfields that back substring matching.
+ * Tokenizes like {@link org.apache.lucene.analysis.standard.StandardAnalyzer} and then
+ * indexes every n-gram of each token, so "contains" lookups become plain term lookups
+ * instead of leading-wildcard scans over the whole term dictionary.
+ */
+public class SubstringAnalyzer extends Analyzer {
+
+    /** Suffix appended to a field name to get its n-gram subfield. */
+    public static final String FIELD_SUFFIX = "_ngram";
+
+    /** Shortest indexed gram; shorter substrings are not matched, as before. */
+    public static final int MIN_GRAM = 3;
+
+    /** Longest indexed gram; longer substrings are matched by their overlapping grams within one token. */
+    public static final int MAX_GRAM = 12;
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer source = new StandardTokenizer();
+        TokenStream result = new LowerCaseFilter(source);
+        result = new NGramTokenFilter(result, MIN_GRAM, MAX_GRAM, true);
+        return new TokenStreamComponents(source, result);
+    }
+
+    /**
+     * Returns the n-gram subfield name for a text field.
+     *
+     * @param field The analyzed text field
+     * @return Name of the matching n-gram subfield
+     */
+    public static String ngramField(String field) {
+        return field + FIELD_SUFFIX;
+    }
+}
@@ -0,0 +1,184 @@
+package com.epam.retrieval;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe, size-bounded cache of query expansions for one knowledge base index.
+ * <p>
+ * The cache is tied to an index generation (the reader version). When a searcher sees
+ * a newer generation, the pattern expander is reloaded and swapped in together with an
+ * empty expansion cache in a single step, so concurrent searches never mix patterns
+ * from two generations. Recently used expansions are kept up to a fixed number of queries,
+ * and each expansion is capped to its highest-weighted terms.
+ */
+public class SynonymCache {
+
+    /** Default number of query expansions kept per generation. */
+    public static final int DEFAULT_MAX_QUERIES = 1_024;
+
+    /** Default cap on related terms per query, keeping expanded queries well under Lucene's clause limit. */
+    public static final int DEFAULT_MAX_TERMS_PER_QUERY = 256;
+
+    /**
+     * Loads the pattern expander for the generation being switched to.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        PatternExpander load() throws IOException;
+    }
+
+    /**
+     * Point-in-time cache metrics.
+     *
+     * @param generation Index generation the cache currently serves, -1 before first use
+     * @param hits Expansions served from the cache since creation
+     * @param misses Expansions computed since creation
+     * @param cachedQueries Number of query expansions currently cached
+     * @param termCount Distinct keywords known to the current expander
+     * @param estimatedBytes Rough heap footprint of the expander and cached expansions
+     */
+    public record Stats(long generation, long hits, long misses, int cachedQueries, int termCount, long estimatedBytes) {
+        /**
+         * @return Fraction of lookups served from the cache, 0 when there were none
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private record Generation(long version, PatternExpander expander, Map<String, Map<String, Integer>> expansions) {
+    }
+
+    private final int maxQueries;
+    private final int maxTermsPerQuery;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Generation current;
+
+    /**
+     * Creates a cache with default bounds.
+     */
+    public SynonymCache() {
+        this(DEFAULT_MAX_QUERIES, DEFAULT_MAX_TERMS_PER_QUERY);
+    }
+
+    /**
+     * Creates a cache with explicit bounds.
+     *
+     * @param maxQueries Maximum number of query expansions kept per generation
+     * @param maxTermsPerQuery Maximum number of related terms returned for one query
+     */
+    public SynonymCache(int maxQueries, int maxTermsPerQuery) {
+        this.maxQueries = maxQueries;
+        this.maxTermsPerQuery = maxTermsPerQuery;
+    }
+
+    /**
+     * Returns the weighted related terms for a query against the given index generation,
+     * switching to that generation first if needed.
+     *
+     * @param version Version of the index reader the query will run against
+     * @param query Lowercased query string
+     * @param loader Loads the expander if the generation changed
+     * @return Related terms with their weights
+     * @throws IOException If the expander for a new generation cannot be loaded
+     */
+    public Map<String, Integer> expand(long version, String query, Loader loader) throws IOException {
+        Generation generation = generation(version, loader);
+
+        Map<String, Integer> cached = generation.expansions().get(query);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        Map<String, Integer> expansion = limit(generation.expander().expand(query));
+        generation.expansions().put(query, expansion);
+        return expansion;
+    }
+
+    /**
+     * @return Current cache metrics
+     */
+    public Stats stats() {
+        Generation generation = current;
+        if (generation == null) {
+            return new Stats(-1, hits.sum(), misses.sum(), 0, 0, 0);
+        }
+
+        long bytes = generation.expander().estimatedBytes();
+        int cachedQueries;
+        synchronized (generation.expansions()) {
+            cachedQueries = generation.expansions().size();
+            for (Map.Entry<String, Map<String, Integer>> entry : generation.expansions().entrySet()) {
+                bytes += 64 + 2L * entry.getKey().length();
+                bytes += 48L * entry.getValue().size();
+            }
+        }
+        return new Stats(generation.version(), hits.sum(), misses.sum(), cachedQueries,
+            generation.expander().termCount(), bytes);
+    }
+
+    /**
+     * Generations only move forward: a search still holding an older reader keeps using
+     * the newer patterns instead of switching the cache back.
+     */
+    private Generation generation(long version, Loader loader) throws IOException {
+        Generation generation = current;
+        if (generation != null && generation.version() >= version) {
+            return generation;
+        }
+        synchronized (this) {
+            generation = current;
+            if (generation == null || generation.version() < version) {
+                generation = new Generation(version, loader.load(), boundedMap(maxQueries));
+                current = generation;
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Keeps only the highest-weighted terms; ties at the cut-off are taken in expansion order.
+     */
+    private Map<String, Integer> limit(Map<String, Integer> expansion) {
+        if (expansion.size() <= maxTermsPerQuery) {
+            return Collections.unmodifiableMap(expansion);
+        }
+        int threshold = expansion.values().stream()
+                .sorted(Collections.reverseOrder())
+                .skip(maxTermsPerQuery - 1L)
+                .findFirst()
+                .orElse(0);
+        Map<String, Integer> limited = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : expansion.entrySet()) {
+            if (entry.getValue() > threshold) {
+                limited.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Integer> entry : expansion.entrySet()) {
+            if (limited.size() >= maxTermsPerQuery) {
+                break;
+            }
+            if (entry.getValue() == threshold) {
+                limited.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(limited);
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
@@ -0,0 +1,299 @@
+package com.epam.review;
+
+import com.epam.analysis.StaticAnalysisPipeline;
+import com.epam.augmentation.PromptBuilder;
+import com.epam.llm.OllamaClient;
+import com.epam.model.AnalysisFinding;
+import com.epam.model.FileFindings;
+import com.epam.model.KnowledgeEntry;
+import com.epam.retrieval.KnowledgeBaseSearcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reviews every Java file under a directory and aggregates the results into one report.
+ * <p>
+ * The review is a pipeline over package directories. Files are analyzed in parallel on
+ * a pool of analysis threads, in path order. As soon as all files of a directory are
+ * analyzed, the files with findings are packed into prompts that fit the prompt budget,
+ * knowledge is retrieved and the prompts are queued for generation on a separate, smaller
+ * pool. Generation for one directory therefore overlaps the analysis of the next ones,
+ * and the LLM, the slowest stage, is kept busy from the first directory on.
+ * <p>
+ * Knowledge is retrieved once per distinct issue for the whole run: most issues repeat
+ * across many files, so later prompts are served from memory. If the LLM is unreachable,
+ * the remaining prompts are skipped and the report still lists all findings.
+ */
+public class RepositoryReviewer implements AutoCloseable {
+
+    /** Most files packed into one prompt, so every file still gets its share of the answer. */
+    public static final int MAX_FILES_PER_PROMPT = 8;
+
+    private static final int ENTRIES_PER_ISSUE = 3;
+    private static final int MAX_KNOWLEDGE_ENTRIES = 5;
+    private static final int PROGRESS_INTERVAL = 100;
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of("target", "build", "out", "node_modules");
+
+    private final StaticAnalysisPipeline staticAnalysis;
+    private final KnowledgeBaseSearcher searcher;
+    private final OllamaClient ollamaClient;
+    private final PromptBuilder promptBuilder;
+    private final int promptTokens;
+    private final ExecutorService analysisPool;
+    private final ExecutorService generationPool;
+    private final Map<String, List<KnowledgeEntry>> entriesByIssue = new ConcurrentHashMap<>();
+    private final AtomicBoolean llmUnavailable = new AtomicBoolean();
+
+    /**
+     * Creates a reviewer from shared components; none of them is closed by the reviewer.
+     *
+     * @param staticAnalysis Pipeline that analyzes each file
+     * @param searcher Knowledge base searcher
+     * @param ollamaClient Client that generates the reviews, or null to only collect findings
+     * @param promptTokens Budget of each prompt in tokens
+     * @param analysisThreads Number of files analyzed at the same time
+     * @param generationThreads Number of prompts sent to the LLM at the same time
+     */
+    public RepositoryReviewer(StaticAnalysisPipeline staticAnalysis, KnowledgeBaseSearcher searcher,
+                              OllamaClient ollamaClient, int promptTokens,
+                              int analysisThreads, int generationThreads) {
+        this.staticAnalysis = staticAnalysis;
+        this.searcher = searcher;
+        this.ollamaClient = ollamaClient;
+        this.promptBuilder = new PromptBuilder(promptTokens);
+        this.promptTokens = promptTokens;
+        this.analysisPool = Executors.newFixedThreadPool(analysisThreads, namedThreads("review-analysis-"));
+        this.generationPool = Executors.newFixedThreadPool(generationThreads, namedThreads("review-generation-"));
+    }
+
+    /**
+     * Reviews all Java files under a directory. Build output and hidden directories are skipped.
+     *
+     * @param root Directory to review
+     * @param userQuery Review request sent with every prompt
+     * @return The aggregated report
+     * @throws IOException If the directory cannot be walked
+     */
+    public ReviewReport review(Path root, String userQuery) throws IOException {
+        long start = System.nanoTime();
+        Map<Path, List<Path>> filesByDirectory = javaFilesByDirectory(root);
+        int total = filesByDirectory.values().stream().mapToInt(List::size).sum();
+        System.out.println("Reviewing " + total + " Java files in " + filesByDirectory.size() + " directories under " + root);
+
+        AtomicInteger analyzed = new AtomicInteger();
+        List<CompletableFuture<ReviewReport.PackageReview>> packages = new ArrayList<>();
+        for (Map.Entry<Path, List<Path>> directory : filesByDirectory.entrySet()) {
+            String name = displayPath(root, directory.getKey());
+            List<CompletableFuture<ReviewReport.FileResult>> analyses = directory.getValue().stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> {
+                    ReviewReport.FileResult result = analyze(root, file);
+                    int done = analyzed.incrementAndGet();
+                    if (done % PROGRESS_INTERVAL == 0 || done == total) {
+                        System.out.println("🔍 Analyzed " + done + "/" + total + " files");
+                    }
+                    return result;
+                }, analysisPool))
+                .toList();
+
+            // Prompts are prepared right away by the thread that finished the directory's last file,
+            // not queued behind the analysis of all other files; only LLM calls go to the generation pool
+            CompletableFuture<ReviewReport.PackageReview> review = CompletableFuture
+                .allOf(analyses.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> analyses.stream().map(CompletableFuture::join).toList())
+                .thenCompose(results -> reviewPackage(root, name, results, userQuery));
+            packages.add(review);
+        }
+
+        List<ReviewReport.PackageReview> reviews = packages.stream().map(CompletableFuture::join).toList();
+        return new ReviewReport(root.toString(), userQuery, reviews, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Stops the analysis and generation threads.
+     */
+    @Override
+    public void close() {
+        analysisPool.shutdownNow();
+        generationPool.shutdownNow();
+    }
+
+    private ReviewReport.FileResult analyze(Path root, Path file) {
+        List<StaticAnalysisPipeline.EngineResult> results = staticAnalysis.run(file.toFile());
+        return new ReviewReport.FileResult(displayPath(root, file), StaticAnalysisPipeline.merge(results),
+            results.stream().anyMatch(StaticAnalysisPipeline.EngineResult::failed));
+    }
+
+    private CompletableFuture<ReviewReport.PackageReview> reviewPackage(
+            Path root, String name, List<ReviewReport.FileResult> results, String userQuery) {
+        List<CompletableFuture<ReviewReport.BatchReview>> batches = new ArrayList<>();
+        for (List<FileFindings> batch : batches(root, results)) {
+            List<String> paths = batch.stream().map(FileFindings::path).toList();
+            String prompt;
+            try {
+                prompt = promptBuilder.buildFilesPrompt(userQuery, batch, retrieveKnowledge(batch));
+            } catch (Exception e) {
+                batches.add(CompletableFuture.completedFuture(
+                    new ReviewReport.BatchReview(paths, null, "Knowledge retrieval failed: " + e.getMessage())));
+                continue;
+            }
+            batches.add(CompletableFuture.supplyAsync(() -> generate(paths, prompt), generationPool));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<ReviewReport.BatchReview> reviews = batches.stream().map(CompletableFuture::join).toList();
+            if (!reviews.isEmpty()) {
+                System.out.println("🤖 Reviewed " + name + " (" + reviews.size() + " prompts)");
+            }
+            return new ReviewReport.PackageReview(name, results, reviews);
+        });
+    }
+
+    private ReviewReport.BatchReview generate(List<String> paths, String prompt) {
+        if (ollamaClient == null) {
+            return new ReviewReport.BatchReview(paths, null, "LLM disabled");
+        }
+        if (llmUnavailable.get()) {
+            return new ReviewReport.BatchReview(paths, null, "LLM unavailable");
+        }
+        try {
+            return new ReviewReport.BatchReview(paths, ollamaClient.generate(prompt), null);
+        } catch (OllamaClient.OllamaException e) {
+            if (llmUnavailable.compareAndSet(false, true)) {
+                System.err.println("Warning: " + e.getMessage() + " Skipping the remaining LLM reviews.");
+            }
+            return new ReviewReport.BatchReview(paths, null, "LLM unavailable");
+        }
+    }
+
+    /**
+     * Packs the files with findings into prompts: files are added in path order while
+     * their estimated size fits the prompt budget. A file larger than the budget gets a
+     * prompt of its own and is trimmed by the prompt builder.
+     */
+    private List<List<FileFindings>> batches(Path root, List<ReviewReport.FileResult> results) {
+        List<List<FileFindings>> batches = new ArrayList<>();
+        List<FileFindings> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (ReviewReport.FileResult result : results) {
+            if (result.findings().isEmpty()) {
+                continue;
+            }
+            String code;
+            try {
+                code = Files.readString(root.resolve(result.path()));
+            } catch (IOException e) {
+                System.err.println("Warning: Could not read " + result.path() + ": " + e.getMessage());
+                code = "";
+            }
+            FileFindings file = new FileFindings(result.path(), code, result.findings());
+            int tokens = estimateTokens(file);
+            if (!current.isEmpty() && (currentTokens + tokens > promptTokens || current.size() >= MAX_FILES_PER_PROMPT)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(file);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private static int estimateTokens(FileFindings file) {
+        int tokens = PromptBuilder.estimateTokens(file.code());
+        for (AnalysisFinding finding : file.findings()) {
+            tokens += PromptBuilder.estimateTokens(finding.issue()) + PromptBuilder.estimateTokens(finding.details());
+        }
+        return tokens;
+    }
+
+    /**
+     * Looks up knowledge for the issues of a batch, querying the index only for issues no
+     * earlier batch asked about. Entries are ranked by how many of the batch's findings
+     * they relate to.
+     */
+    private List<KnowledgeEntry> retrieveKnowledge(List<FileFindings> batch) throws Exception {
+        Map<String, AnalysisFinding> unseen = new LinkedHashMap<>();
+        for (FileFindings file : batch) {
+            for (AnalysisFinding finding : file.findings()) {
+                if (!entriesByIssue.containsKey(finding.issue())) {
+                    unseen.putIfAbsent(finding.issue(), finding);
+                }
+            }
+        }
+        if (!unseen.isEmpty()) {
+            searcher.searchBatch(new ArrayList<>(unseen.values()), ENTRIES_PER_ISSUE)
+                .forEach((finding, entries) -> entriesByIssue.putIfAbsent(finding.issue(), entries));
+        }
+
+        Map<String, KnowledgeEntry> byTitle = new LinkedHashMap<>();
+        Map<String, Integer> weight = new LinkedHashMap<>();
+        for (FileFindings file : batch) {
+            for (AnalysisFinding finding : file.findings()) {
+                for (KnowledgeEntry entry : entriesByIssue.getOrDefault(finding.issue(), List.of())) {
+                    byTitle.putIfAbsent(entry.getTitle(), entry);
+                    weight.merge(entry.getTitle(), 1, Integer::sum);
+                }
+            }
+        }
+        return byTitle.values().stream()
+            .sorted(Comparator.comparingInt((KnowledgeEntry entry) -> weight.get(entry.getTitle())).reversed())
+            .limit(MAX_KNOWLEDGE_ENTRIES)
+            .toList();
+    }
+
+    /**
+     * Finds all Java files under the root, grouped by directory, both in path order.
+     */
+    private static Map<Path, List<Path>> javaFilesByDirectory(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths
+                .filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                .filter(path -> !isSkipped(root.relativize(path)))
+                .sorted()
+                .collect(Collectors.groupingBy(Path::getParent, LinkedHashMap::new, Collectors.toList()));
+        }
+    }
+
+    private static boolean isSkipped(Path relative) {
+        for (int i = 0; i < relative.getNameCount() - 1; i++) {
+            String name = relative.getName(i).toString();
+            if (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String displayPath(Path root, Path path) {
+        String relative = root.relativize(path).toString().replace('\\', '/');
+        return relative.isEmpty() ? "." : relative;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.epam.review;
+
+import com.epam.model.AnalysisFinding;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The aggregated result of a {@link RepositoryReviewer} run: static analysis findings per
+ * file and the LLM reviews per package directory.
+ *
+ * @param root Directory that was reviewed
+ * @param query The review request sent with every prompt
+ * @param packages Reviews per package directory, in path order
+ * @param elapsedMillis Wall-clock time of the whole review
+ */
+public record ReviewReport(String root, String query, List<PackageReview> packages, long elapsedMillis) {
+
+    private static final int TOP_ISSUES = 15;
+
+    /**
+     * Static analysis outcome for one file.
+     *
+     * @param path File path relative to the reviewed root
+     * @param findings Findings of all engines, including error findings of failed engines
+     * @param failed True if an engine failed or timed out on the file
+     */
+    public record FileResult(String path, List<AnalysisFinding> findings, boolean failed) {
+    }
+
+    /**
+     * One LLM prompt and its answer.
+     *
+     * @param files Paths of the files the prompt covered
+     * @param review The LLM's answer, or null if it was not generated
+     * @param error Why the answer is missing, or null
+     */
+    public record BatchReview(List<String> files, String review, String error) {
+    }
+
+    /**
+     * All results for one package directory.
+     *
+     * @param name Directory relative to the reviewed root, "." for the root itself
+     * @param files Static analysis results of every file in the directory
+     * @param reviews LLM reviews of the files that have findings
+     */
+    public record PackageReview(String name, List<FileResult> files, List<BatchReview> reviews) {
+    }
+
+    /**
+     * @return Number of files analyzed
+     */
+    public int fileCount() {
+        return packages.stream().mapToInt(p -> p.files().size()).sum();
+    }
+
+    /**
+     * @return Total number of findings
+     */
+    public int findingCount() {
+        return files().mapToInt(f -> f.findings().size()).sum();
+    }
+
+    /**
+     * @return Number of occurrences of each issue, most frequent first
+     */
+    public Map<String, Long> issueCounts() {
+        Map<String, Long> counts = files()
+            .flatMap(f -> f.findings().stream())
+            .collect(Collectors.groupingBy(AnalysisFinding::issue, Collectors.counting()));
+        return counts.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Renders the report as Markdown: a summary, the most frequent issues, then each
+     * package directory with its LLM reviews and its findings per file.
+     *
+     * @return The report text
+     */
+    public String toMarkdown() {
+        List<BatchReview> batches = packages.stream().flatMap(p -> p.reviews().stream()).toList();
+        long generated = batches.stream().filter(b -> b.review() != null).count();
+        long withFindings = files().filter(f -> !f.findings().isEmpty()).count();
+        long failed = files().filter(FileResult::failed).count();
+
+        StringBuilder out = new StringBuilder("# Code Review Report\n\n");
+        out.append("- Source: `").append(root).append("`\n");
+        out.append("- Request: ").append(query).append("\n");
+        out.append(String.format("- Files analyzed: %d (%d with findings, %d with analysis errors)%n",
+            fileCount(), withFindings, failed));
+        out.append("- Findings: ").append(findingCount()).append("\n");
+        out.append(String.format("- LLM reviews: %d of %d prompts generated%n", generated, batches.size()));
+        out.append(String.format("- Time: %.1f s%n%n", elapsedMillis / 1000.0));
+
+        Map<String, Long> issues = issueCounts();
+        if (!issues.isEmpty()) {
+            out.append("## Most Frequent Issues\n\n| Issue | Count |\n|---|---|\n");
+            issues.entrySet().stream().limit(TOP_ISSUES).forEach(e ->
+                out.append("| ").append(e.getKey()).append(" | ").append(e.getValue()).append(" |\n"));
+            out.append("\n");
+        }
+
+        for (PackageReview pkg : packages) {
+            List<FileResult> flagged = pkg.files().stream()
+                .filter(f -> !f.findings().isEmpty())
+                .sorted(Comparator.comparing(FileResult::path))
+                .toList();
+            if (flagged.isEmpty()) {
+                continue;
+            }
+            out.append("## ").append(pkg.name()).append("\n\n");
+            for (BatchReview batch : pkg.reviews()) {
+                out.append("### Review: ").append(String.join(", ", batch.files())).append("\n\n");
+                out.append(batch.review() != null ? batch.review().strip() : "_Review not generated: " + batch.error() + "_");
+                out.append("\n\n");
+            }
+            out.append("### Findings\n\n");
+            for (FileResult file : flagged) {
+                out.append("- `").append(file.path()).append("`\n");
+                file.findings().forEach(f ->
+                    out.append("  - [").append(f.issue()).append("] ").append(f.details()).append("\n"));
+            }
+            out.append("\n");
+        }
+        return out.toString();
+    }
+
+    private Stream<FileResult> files() {
+        return packages.stream().flatMap(p -> p.files().stream());
+    }
+}
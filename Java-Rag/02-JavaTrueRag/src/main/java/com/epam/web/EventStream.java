@@ -0,0 +1,96 @@
+package com.epam.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes a Server-Sent Events response. Headers are sent when the stream is opened and the
+ * body uses chunked transfer, so each event reaches the browser as soon as it is sent.
+ * <p>
+ * Event data is a single-line JSON object. Sending is thread-safe and never throws: once the
+ * client disconnects, further events are dropped and {@link #isOpen()} returns false.
+ * Writes are serialized with a lock rather than a monitor, so a virtual thread blocked on
+ * a slow client does not pin its carrier thread.
+ */
+final class EventStream implements AutoCloseable {
+
+    private final HttpExchange exchange;
+    private final ObjectMapper mapper;
+    private final OutputStream out;
+    private final Set<String> sentEvents = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean open = true;
+
+    EventStream(HttpExchange exchange, ObjectMapper mapper) throws IOException {
+        this.exchange = exchange;
+        this.mapper = mapper;
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        // Length 0 selects chunked transfer encoding
+        exchange.sendResponseHeaders(200, 0);
+        this.out = exchange.getResponseBody();
+    }
+
+    /**
+     * Sends one event and flushes it to the client.
+     *
+     * @param event Event name, e.g. "token"
+     * @param data Event payload, serialized as JSON
+     * @return False if the client has disconnected
+     */
+    boolean send(String event, Map<String, ?> data) {
+        lock.lock();
+        try {
+            if (!open) {
+                return false;
+            }
+            String frame = "event: " + event + "\ndata: " + mapper.writeValueAsString(data) + "\n\n";
+            out.write(frame.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sentEvents.add(event);
+            return true;
+        } catch (IOException e) {
+            open = false;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return True until a send fails because the client went away
+     */
+    boolean isOpen() {
+        lock.lock();
+        try {
+            return open;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return True if at least one event with this name was delivered
+     */
+    boolean hasSent(String event) {
+        lock.lock();
+        try {
+            return sentEvents.contains(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        exchange.close();
+    }
+}
@@ -1,16 +1,26 @@
 package com.epam.web;
 
-import com.epam.analysis.CheckstyleAnalyzer;
-import com.epam.analysis.PMDAnalyzer;
+import com.epam.analysis.FindingsCache;
+import com.epam.analysis.StaticAnalysisPipeline;
 import com.epam.augmentation.PromptBuilder;
+import com.epam.constant.AppConstant;
+import com.epam.generation.PipelineRegistry;
 import com.epam.generation.RAGPipeline;
+import com.epam.generation.ResponseCache;
 import com.epam.llm.OllamaClient;
+import com.epam.metrics.PipelineMetrics;
+import com.epam.metrics.StageTimings;
 import com.epam.model.AnalysisFinding;
+import com.epam.retrieval.InMemoryIndexCache;
 import com.epam.retrieval.KnowledgeBaseIndexer;
+import com.epam.retrieval.KnowledgeBaseSearcher;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 
 import java.io.File;
 import java.io.IOException;
@@ -19,10 +29,18 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 /**
  * HTTP server for the RAG web interface.
@@ -31,28 +49,134 @@ import java.util.concurrent.Executors;
  * Routes:
  *   GET / → serves index.html from classpath (/web/index.html)
  *   POST /api/run → runs the selected pipeline and returns JSON result
+ *   POST /api/run/stream → same request, streams the result as Server-Sent Events:
+ *        "token" events with {"token": ...} while the LLM generates, then a final
+ *        "done" event ({"status": "success"}) or "error" event ({"error": ..., "status": "error"})
+ *   GET /metrics → stage latency histograms, queue depths and cache counters in the
+ *        Prometheus text format
+ * <p>
+ * Every request records a timing span per stage (see {@link StageTimings}); a stage span
+ * includes any wait for the stage's slot, which is also recorded as a "&lt;stage&gt;-queue"
+ * span. A request with {@code "timings": true} gets its spans back as a "timings" object in
+ * the JSON response or the "done" event.
+ * <p>
+ * Each request runs on its own virtual thread. The static analysis, retrieval and generation
+ * stages are limited separately by a {@link StageLimiter}; a request waiting for a stage gets
+ * a "queued" event with the number of requests waiting on the stream endpoint, and a request
+ * that finds the queue full is answered with 429.
+ * <p>
+ * LLM answers are cached by prompt (see {@link ResponseCache}); a request with
+ * {@code "cache": false} skips the lookup and always generates a fresh answer.
+ * The cache is sized with {@code rag.cache.responses}, {@code rag.cache.ttlMinutes} and
+ * {@code rag.cache.similarity} (0 disables near matches).
+ * <p>
+ * With {@code -Drag.index.snapshot=true} the default index is published as a read-only,
+ * single-segment snapshot before the server accepts requests, and searched memory-mapped,
+ * preloaded and warmed up (see {@link KnowledgeBaseSearcher#openSnapshot(Path)}); knowledge
+ * base changes publish a new snapshot that replaces it.
  */
 public class RagWebServer {
 
     private static final String KB_DIR      = "src/main/resources/knowledgebase";
     private static final String INDEX_DIR   = "index";
+    private static final String SNAPSHOT_DIR = "index-snapshots";
     private static final String CHECKSTYLE  = "src/main/resources/checkstyle.xml";
     private static final String PMD_RULES   = "src/main/resources/pmd-ruleset.xml";
+    private static final long KB_REFRESH_SECONDS = 30;
+    private static final int CUSTOM_KB_CACHE_ENTRIES = 32;
+    private static final long CUSTOM_KB_CACHE_BYTES = 256L * 1024 * 1024;
+    private static final long CUSTOM_KB_MAX_INPUT_BYTES = 16L * 1024 * 1024;
+    private static final int FINDINGS_CACHE_ENTRIES = 1024;
+    private static final String FINDINGS_CACHE_FILE = "target/findings-cache.json";
+    private static final int RESPONSE_CACHE_ENTRIES = 256;
+    private static final long RESPONSE_CACHE_TTL_MINUTES = 60;
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private static final String OLLAMA_UNAVAILABLE =
+        "Ollama is not available. Ensure Ollama is running (ollama serve) and the model is pulled.";
 
     private final int port;
     private final ObjectMapper mapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+    /** Pipeline over the default index, set once the index exists; read without locking. */
+    private volatile RAGPipeline defaultPipeline;
+    /**
+     * Serializes building, refreshing and publishing the default index, off the request path.
+     * A lock rather than a monitor, so a request thread waiting on a build does not pin its carrier.
+     */
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private final boolean snapshotMode = Boolean.getBoolean("rag.index.snapshot");
+    private ScheduledExecutorService kbRefresher;
+    private final PipelineRegistry pipelines = new PipelineRegistry();
+    private final PromptBuilder promptBuilder = new PromptBuilder();
+    private final StageLimiter stageLimiter = new StageLimiter();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final ResponseCache responseCache = new ResponseCache(
+        Integer.getInteger("rag.cache.responses", RESPONSE_CACHE_ENTRIES),
+        Duration.ofMinutes(Long.getLong("rag.cache.ttlMinutes", RESPONSE_CACHE_TTL_MINUTES)),
+        Double.parseDouble(System.getProperty("rag.cache.similarity", "0")));
+    private final InMemoryIndexCache customIndexes = new InMemoryIndexCache(CUSTOM_KB_CACHE_ENTRIES, CUSTOM_KB_CACHE_BYTES,
+                                                                              CUSTOM_KB_MAX_INPUT_BYTES);
+    private final StaticAnalysisPipeline staticAnalysis =
+        StaticAnalysisPipeline.checkstyleAndPmd(new File(CHECKSTYLE), new File(PMD_RULES));
+    private final FindingsCache findingsCache = new FindingsCache(
+        List.of(new File(CHECKSTYLE), new File(PMD_RULES)), FINDINGS_CACHE_ENTRIES, Path.of(FINDINGS_CACHE_FILE));
 
     public RagWebServer(int port) {
         this.port = port;
+        registerMetrics();
     }
 
     public void start() throws IOException {
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        if (snapshotMode) {
+            publishDefaultIndex();
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 0);
         server.createContext("/", this::handlePage);
         server.createContext("/api/run", this::handleApiRun);
+        server.createContext("/api/run/stream", this::handleApiRunStream);
         server.createContext("/static", this::handleStatic);
-        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/metrics", this::handleMetrics);
+        // Requests mostly wait on Ollama, so each gets a cheap virtual thread; StageLimiter bounds the work
+        requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(requestExecutor);
         server.start();
+
+        // Edits to the knowledge base directory are picked up without a restart
+        kbRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kb-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        kbRefresher.scheduleWithFixedDelay(this::refreshKnowledgeBase, 0, KB_REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops accepting requests and releases the shared pipelines and knowledge base searcher,
+     * the cached custom knowledge base indexes and the static analysis threads,
+     * and saves the findings cache.
+     */
+    public synchronized void stop() {
+        if (kbRefresher != null) {
+            kbRefresher.shutdownNow();
+            kbRefresher = null;
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+            requestExecutor = null;
+        }
+        pipelines.close();
+        defaultPipeline = null;
+        customIndexes.close();
+        staticAnalysis.close();
+        try {
+            findingsCache.save();
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save findings cache: " + e.getMessage());
+        }
     }
 
     // ── Static page handler ────────────────────────────────────────────────
@@ -99,19 +223,135 @@ public class RagWebServer {
     }
 
 
+    // ── Metrics handler ────────────────────────────────────────────────────
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+            sendText(exchange, 405, "text/plain", "Method not allowed");
+            return;
+        }
+        sendText(exchange, 200, PipelineMetrics.CONTENT_TYPE, metrics.scrape());
+    }
+
+    /**
+     * Exposes the admission queues and the caches next to the stage histograms.
+     */
+    private void registerMetrics() {
+        metrics.gauge("rag_stage_active_requests", "Requests holding a slot in each stage.", "stage",
+            () -> perStage(stageLimiter::active));
+        metrics.gauge("rag_stage_queued_requests", "Requests waiting for a slot in each stage.", "stage",
+            () -> perStage(stageLimiter::queued));
+        metrics.counter("rag_cache_hits_total", "Cache lookups answered by each cache.", "cache", () -> Map.of(
+            "findings", findingsCache.stats().hits(),
+            "response", responseCache.stats().hits(),
+            "response-similar", responseCache.stats().similarHits(),
+            "custom-kb-index", customIndexes.stats().hits()));
+        metrics.counter("rag_cache_misses_total", "Cache lookups that found nothing.", "cache", () -> Map.of(
+            "findings", findingsCache.stats().misses(),
+            "response", responseCache.stats().misses(),
+            "custom-kb-index", customIndexes.stats().misses()));
+        metrics.gauge("rag_cache_entries", "Entries currently held by each cache.", "cache", () -> Map.of(
+            "findings", findingsCache.stats().entries(),
+            "response", responseCache.stats().entries(),
+            "custom-kb-index", customIndexes.stats().entries()));
+    }
+
+    private static Map<String, Integer> perStage(ToIntFunction<StageLimiter.Stage> value) {
+        Map<String, Integer> samples = new LinkedHashMap<>();
+        for (StageLimiter.Stage stage : StageLimiter.Stage.values()) {
+            samples.put(stage.id(), value.applyAsInt(stage));
+        }
+        return samples;
+    }
+
     // ── API handler ────────────────────────────────────────────────────────
 
+    /**
+     * A parsed /api/run request.
+     */
+    private record RunRequest(String runner, String code, String query, String kb, boolean useCache,
+                              boolean includeTimings) {
+    }
+
+    /**
+     * One LLM call; streams to {@code onToken} unless it is null.
+     */
+    @FunctionalInterface
+    private interface Generation {
+        String run(Consumer<String> onToken);
+    }
+
     private void handleApiRun(HttpExchange exchange) throws IOException {
+        RunRequest request = readRunRequest(exchange);
+        if (request == null) {
+            return;
+        }
+
+        try {
+            StageTimings timings = metrics.newTimings();
+            String result = dispatch(request, null, timings);
+            sendJson(exchange, 200, success(Map.of("result", result, "status", "success"), request, timings));
+
+        } catch (StageLimiter.SaturatedException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            sendJson(exchange, 429, Map.of("error", e.getMessage(), "stage", e.stage().id(), "status", "busy"));
+        } catch (InMemoryIndexCache.TooLargeException e) {
+            sendJson(exchange, 413, Map.of("error", e.getMessage(), "status", "error"));
+        } catch (OllamaClient.OllamaException e) {
+            sendJson(exchange, 503, Map.of(
+                "error", OLLAMA_UNAVAILABLE,
+                "status", "error"
+            ));
+        } catch (Exception e) {
+            sendJson(exchange, 500, Map.of("error", e.getMessage() != null ? e.getMessage() : "Unexpected error",
+                                           "status", "error"));
+        }
+    }
+
+    private void handleApiRunStream(HttpExchange exchange) throws IOException {
+        RunRequest request = readRunRequest(exchange);
+        if (request == null) {
+            return;
+        }
+
+        try (EventStream events = new EventStream(exchange, mapper)) {
+            try {
+                StageTimings timings = metrics.newTimings();
+                String result = dispatch(request, events, timings);
+                // Runners without an LLM produce their result in one piece
+                if (!events.hasSent("token")) {
+                    events.send("token", Map.of("token", result));
+                }
+                events.send("done", success(Map.of("status", "success"), request, timings));
+
+            } catch (StageLimiter.SaturatedException e) {
+                events.send("error", Map.of("error", e.getMessage(), "stage", e.stage().id(), "status", "busy"));
+            } catch (InMemoryIndexCache.TooLargeException e) {
+                events.send("error", Map.of("error", e.getMessage(), "status", "error"));
+            } catch (OllamaClient.OllamaException e) {
+                events.send("error", Map.of("error", OLLAMA_UNAVAILABLE, "status", "error"));
+            } catch (Exception e) {
+                events.send("error", Map.of("error", e.getMessage() != null ? e.getMessage() : "Unexpected error",
+                                            "status", "error"));
+            }
+        }
+    }
+
+    /**
+     * Handles CORS preflight and method checks and parses the request body. Sends the
+     * response itself and returns null if the request cannot be run.
+     */
+    private RunRequest readRunRequest(HttpExchange exchange) throws IOException {
         addCorsHeaders(exchange);
 
         if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
             exchange.sendResponseHeaders(204, -1);
             exchange.close();
-            return;
+            return null;
         }
         if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
             sendJson(exchange, 405, Map.of("error", "Method not allowed"));
-            return;
+            return null;
         }
 
         try {
@@ -122,127 +362,309 @@ public class RagWebServer {
             String code   = req.path("code").asText("").trim();
             String query  = req.path("query").asText("Review this code for issues").trim();
             String kb     = req.path("kb").asText("").trim();
+            boolean cache = req.path("cache").asBoolean(true);
+            boolean timed = req.path("timings").asBoolean(false);
 
             if (code.isEmpty()) {
                 sendJson(exchange, 400, Map.of("error", "No code provided"));
-                return;
+                return null;
             }
+            return new RunRequest(runner, code, query, kb, cache, timed);
 
-            String result = dispatch(runner, code, query, kb);
-            sendJson(exchange, 200, Map.of("result", result, "status", "success"));
-
-        } catch (OllamaClient.OllamaException e) {
-            sendJson(exchange, 503, Map.of(
-                "error", "Ollama is not available. Ensure Ollama is running (ollama serve) " +
-                          "and the model is pulled.",
-                "status", "error"
-            ));
-        } catch (Exception e) {
-            sendJson(exchange, 500, Map.of("error", e.getMessage() != null ? e.getMessage() : "Unexpected error",
-                                           "status", "error"));
+        } catch (IOException e) {
+            sendJson(exchange, 400, Map.of("error", "Invalid request: " + e.getMessage(), "status", "error"));
+            return null;
         }
     }
 
     // ── Pipeline dispatch ──────────────────────────────────────────────────
 
-    private String dispatch(String runner, String code, String query, String kb) throws Exception {
-        System.out.println("Running " + runner + " pipeline...");
-        return switch (runner) {
-            case "llm-only"          -> runLlmOnly(code, query);
-            case "static-analysis"   -> runStaticAnalysis(code);
-            default                  -> runRag(code, query, kb);
+    /**
+     * Runs the requested pipeline.
+     *
+     * @param events Stream that receives queue waits and LLM tokens as they are generated,
+     *               or null to wait for the whole response
+     * @param timings Receives a span for each stage the request passes through
+     * @return The complete result
+     */
+    private String dispatch(RunRequest request, EventStream events, StageTimings timings) throws Exception {
+        System.out.println("Running " + request.runner() + " pipeline...");
+        return switch (request.runner()) {
+            case "llm-only"          -> runLlmOnly(request, events, timings);
+            case "static-analysis"   -> runStaticAnalysis(request.code(), events, timings);
+            default                  -> runRag(request, events, timings);
         };
     }
 
-    private String runLlmOnly(String code, String query) {
-        OllamaClient client = new OllamaClient();
-        PromptBuilder pb    = new PromptBuilder();
-        return client.generate(pb.buildSimplePrompt(query, code));
+    private String runLlmOnly(RunRequest request, EventStream events, StageTimings timings) throws Exception {
+        OllamaClient client = pipelines.client(AppConstant.OLLAMA_MODEL);
+        String prompt;
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.AUGMENTATION)) {
+            prompt = promptBuilder.buildSimplePrompt(request.query(), request.code());
+            span.attribute(StageTimings.PROMPT_TOKENS, PromptBuilder.estimateTokens(prompt));
+        }
+        return generate(prompt, List.of(request.query(), request.code()), request.useCache(), events, timings,
+            onToken -> onToken != null ? client.generateStreaming(prompt, onToken) : client.generate(prompt));
+    }
+
+    private String runStaticAnalysis(String code, EventStream events, StageTimings timings) throws Exception {
+        List<AnalysisFinding> findings = collectFindings(code, events, timings);
+        if (findings.isEmpty()) return "No issues found by static analysis.";
+        StringBuilder sb = new StringBuilder("Static Analysis Results:\n\n");
+        findings.forEach(f -> sb.append("• [").append(f.issue()).append("]\n  ")
+                                .append(f.details()).append("\n\n"));
+        return sb.toString().trim();
+    }
+
+    private String runRag(RunRequest request, EventStream events, StageTimings timings) throws Exception {
+        List<AnalysisFinding> findings = collectFindings(request.code(), events, timings);
+
+        // Use custom KB if provided (indexed in memory and cached by content), otherwise the default index
+        if (!request.kb().isEmpty()) {
+            InMemoryIndexCache.Lease lease;
+            StageTimings.OpenSpan span = timings.start(StageTimings.INDEXING);
+            try {
+                StageLimiter.Permit permit = enter(StageLimiter.Stage.RETRIEVAL, events, timings);
+                try {
+                    lease = customIndexes.acquire(request.kb());
+                } finally {
+                    permit.close();
+                }
+            } finally {
+                span.close();
+            }
+            try (lease) {
+                RAGPipeline pipeline = pipelines.pipeline(lease.searcher(), AppConstant.OLLAMA_MODEL);
+                return generateFeedback(pipeline, request, findings, events, timings);
+            }
+        }
+        return generateFeedback(defaultPipeline(), request, findings, events, timings);
     }
 
-    private String runStaticAnalysis(String code) throws Exception {
-        File temp = writeTempJava(code);
+    /**
+     * Runs retrieval and generation as separate stages, so a request only holds a
+     * generation slot while it is actually waiting on the LLM.
+     */
+    private String generateFeedback(RAGPipeline pipeline, RunRequest request, List<AnalysisFinding> findings,
+                                    EventStream events, StageTimings timings) throws Exception {
+        String prompt;
+        StageLimiter.Permit permit = enter(StageLimiter.Stage.RETRIEVAL, events, timings);
         try {
-            List<AnalysisFinding> findings = collectFindings(temp);
-            if (findings.isEmpty()) return "No issues found by static analysis.";
-            StringBuilder sb = new StringBuilder("Static Analysis Results:\n\n");
-            findings.forEach(f -> sb.append("• [").append(f.issue()).append("]\n  ")
-                                    .append(f.details()).append("\n\n"));
-            return sb.toString().trim();
+            prompt = pipeline.preparePrompt(request.query(), findings, request.code(), timings);
         } finally {
-            temp.delete();
+            permit.close();
         }
+        List<String> inputs = List.of(request.query(), request.code(), findingsText(findings), request.kb());
+        return generate(prompt, inputs, request.useCache(), events, timings,
+            onToken -> onToken != null ? pipeline.generate(prompt, onToken) : pipeline.generate(prompt));
     }
 
-    private String runRag(String code, String query, String kb) throws Exception {
-        File temp         = writeTempJava(code);
-        File tempKbDir    = null;
-        File tempIndexDir = null;
-        String indexDir   = INDEX_DIR;
-
-        try {
-            // Use custom KB if provided, otherwise ensure the default index exists
-            if (!kb.isEmpty()) {
-                tempKbDir    = Files.createTempDirectory("rag-kb").toFile();
-                tempIndexDir = Files.createTempDirectory("rag-idx").toFile();
-                writeKbEntries(kb, tempKbDir);
-                new KnowledgeBaseIndexer().indexKnowledgeBase(tempKbDir.getPath(), tempIndexDir.getPath());
-                indexDir = tempIndexDir.getPath();
-            } else {
-                File defaultIndex = new File(INDEX_DIR);
-                if (!defaultIndex.exists()) {
-                    new KnowledgeBaseIndexer().indexKnowledgeBase(KB_DIR, INDEX_DIR);
+    /**
+     * Answers a prompt from the response cache, or runs the generation in a generation slot
+     * and caches its answer. A cached answer reaches a streaming client as a single token.
+     *
+     * @param inputs The request texts the prompt was built from, for near-match lookups
+     */
+    private String generate(String prompt, List<String> inputs, boolean useCache, EventStream events,
+                            StageTimings timings, Generation generation) throws InterruptedException {
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.GENERATION)) {
+            if (useCache) {
+                String cached = responseCache.get(AppConstant.OLLAMA_MODEL, prompt, inputs);
+                span.attribute(StageTimings.CACHE_HIT, cached != null);
+                if (cached != null) {
+                    System.out.println("Answer served from the response cache");
+                    return cached;
                 }
             }
+            String response;
+            StageLimiter.Permit permit = enter(StageLimiter.Stage.GENERATION, events, timings);
+            try {
+                // A client that left while waiting for the slot gets no generation
+                if (events != null && !events.isOpen()) {
+                    throw new CancellationException("Client disconnected");
+                }
+                response = generation.run(events != null ? tokenSender(events) : null);
+            } finally {
+                permit.close();
+            }
+            span.attribute(StageTimings.RESPONSE_TOKENS, PromptBuilder.estimateTokens(response));
+            responseCache.put(AppConstant.OLLAMA_MODEL, prompt, inputs, response);
+            return response;
+        }
+    }
 
-            List<AnalysisFinding> findings = collectFindings(temp);
-            return new RAGPipeline(indexDir).generateFeedback(query, findings, code);
+    private static String findingsText(List<AnalysisFinding> findings) {
+        StringBuilder text = new StringBuilder();
+        findings.forEach(f -> text.append(f.issue()).append(' ').append(f.details()).append('\n'));
+        return text.toString();
+    }
 
-        } finally {
-            temp.delete();
-            if (tempKbDir    != null) deleteDir(tempKbDir);
-            if (tempIndexDir != null) deleteDir(tempIndexDir);
+    /**
+     * Takes a slot in a stage, telling a streaming client how many requests are waiting if it
+     * has to wait. A wait is recorded as a "&lt;stage&gt;-queue" span with that number.
+     */
+    private StageLimiter.Permit enter(StageLimiter.Stage stage, EventStream events, StageTimings timings)
+            throws InterruptedException {
+        StageTimings.OpenSpan[] wait = new StageTimings.OpenSpan[1];
+        StageLimiter.Permit permit = stageLimiter.enter(stage, waiting -> {
+            wait[0] = timings.start(stage.id() + "-queue").attribute("waiting", waiting);
+            if (events != null) {
+                events.send("queued", Map.of("stage", stage.id(), "waiting", waiting));
+            }
+        });
+        if (wait[0] != null) {
+            wait[0].close();
+        }
+        return permit;
+    }
+
+    /**
+     * Adds the request's timings to a success payload if the client asked for them.
+     */
+    private static Map<String, ?> success(Map<String, ?> payload, RunRequest request, StageTimings timings) {
+        if (!request.includeTimings()) {
+            return payload;
         }
+        Map<String, Object> withTimings = new LinkedHashMap<>(payload);
+        withTimings.put("timings", timings.toMap());
+        return withTimings;
+    }
+
+    /**
+     * Sends each token to the client. Once the client has gone, the callback throws, which
+     * stops the generation and frees its slot.
+     */
+    private static Consumer<String> tokenSender(EventStream events) {
+        return token -> {
+            if (!events.send("token", Map.of("token", token))) {
+                throw new CancellationException("Client disconnected");
+            }
+        };
     }
 
     // ── Helpers ────────────────────────────────────────────────────────────
 
-    private List<AnalysisFinding> collectFindings(File javaFile) throws Exception {
-        List<AnalysisFinding> findings = new ArrayList<>();
-        findings.addAll(new CheckstyleAnalyzer().analyze(javaFile, new File(CHECKSTYLE)));
-        findings.addAll(new PMDAnalyzer().analyze(javaFile, new File(PMD_RULES)));
-        return findings;
+    /**
+     * Returns the pipeline over the default index. Requests only wait for the index lock
+     * when no index has been committed yet; refreshes never hold them up.
+     * The pipeline, its searcher and its Ollama client are shared by all request threads
+     * until {@link #stop()}.
+     */
+    private RAGPipeline defaultPipeline() throws Exception {
+        RAGPipeline pipeline = defaultPipeline;
+        if (pipeline != null) {
+            return pipeline;
+        }
+        if (!defaultIndexExists()) {
+            indexLock.lock();
+            try {
+                if (!defaultIndexExists()) {
+                    new KnowledgeBaseIndexer().indexKnowledgeBase(KB_DIR, INDEX_DIR);
+                }
+            } finally {
+                indexLock.unlock();
+            }
+        }
+        pipeline = pipelines.pipeline(INDEX_DIR, AppConstant.OLLAMA_MODEL);
+        defaultPipeline = pipeline;
+        return pipeline;
     }
 
-    private File writeTempJava(String code) throws IOException {
-        File temp = File.createTempFile("rag-code-", ".java");
-        Files.writeString(temp.toPath(), code);
-        return temp;
+    /**
+     * Tells whether the default index has a commit, so a directory that an indexer is still
+     * filling does not count.
+     */
+    private static boolean defaultIndexExists() throws IOException {
+        try (Directory indexDir = FSDirectory.open(Path.of(INDEX_DIR))) {
+            return DirectoryReader.indexExists(indexDir);
+        }
     }
 
     /**
-     * Writes KB JSON to individual files in tempKbDir.
-     * Supports both a single JSON object and a JSON array of objects.
+     * Builds or updates the default index, publishes it as a snapshot and moves the shared
+     * searcher onto it, so the first request finds the index mapped and warmed up.
      */
-    private void writeKbEntries(String kb, File dir) throws Exception {
-        JsonNode node = mapper.readTree(kb);
-        if (node.isArray()) {
-            for (int i = 0; i < node.size(); i++) {
-                mapper.writeValue(new File(dir, "entry_" + i + ".json"), node.get(i));
+    private void publishDefaultIndex() throws IOException {
+        try {
+            indexLock.lock();
+            try {
+                KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer();
+                if (defaultIndexExists()) {
+                    indexer.updateKnowledgeBase(KB_DIR, INDEX_DIR);
+                } else {
+                    indexer.indexKnowledgeBase(KB_DIR, INDEX_DIR);
+                }
+                publishSnapshot(indexer);
+            } finally {
+                indexLock.unlock();
             }
-        } else {
-            mapper.writeValue(new File(dir, "entry_0.json"), node);
+            defaultPipeline = pipelines.pipeline(INDEX_DIR, AppConstant.OLLAMA_MODEL);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not publish knowledge base snapshot: " + e.getMessage(), e);
         }
     }
 
-    private void deleteDir(File dir) {
-        if (dir.isDirectory()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File f : files) deleteDir(f);
+    private void publishSnapshot(KnowledgeBaseIndexer indexer) throws Exception {
+        Path snapshot = indexer.publishSnapshot(INDEX_DIR, SNAPSHOT_DIR);
+        pipelines.searcher(INDEX_DIR).switchSnapshot(snapshot);
+    }
+
+    /**
+     * Applies knowledge base file changes to the default index. The shared searcher
+     * sees the new commit on its next acquire, or in snapshot mode once the new snapshot
+     * is published and warmed up. Requests keep using the current index meanwhile.
+     */
+    private void refreshKnowledgeBase() {
+        indexLock.lock();
+        try {
+            KnowledgeBaseIndexer indexer = new KnowledgeBaseIndexer();
+            KnowledgeBaseIndexer.IndexChanges changes = indexer.updateKnowledgeBase(KB_DIR, INDEX_DIR);
+            if (changes.hasChanges()) {
+                System.out.printf("Knowledge base refreshed: %d added, %d updated, %d deleted%n",
+                    changes.added(), changes.updated(), changes.deleted());
+                if (snapshotMode) {
+                    publishSnapshot(indexer);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Could not refresh knowledge base index: " + e.getMessage());
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the Checkstyle and PMD findings for the code, from the findings cache when the
+     * same code was analyzed before. Otherwise both engines run concurrently on the code in
+     * memory and findings are merged Checkstyle first, then PMD; results with a failed engine
+     * are not cached. Only a cache miss takes a static analysis slot.
+     */
+    private List<AnalysisFinding> collectFindings(String code, EventStream events, StageTimings timings)
+            throws InterruptedException {
+        try (StageTimings.OpenSpan span = timings.start(StageTimings.STATIC_ANALYSIS)) {
+            List<AnalysisFinding> cached = findingsCache.get(code);
+            span.attribute(StageTimings.CACHE_HIT, cached != null);
+            if (cached != null) {
+                span.attribute("findings", cached.size());
+                return cached;
+            }
+
+            List<StaticAnalysisPipeline.EngineResult> results;
+            StageLimiter.Permit permit = enter(StageLimiter.Stage.STATIC_ANALYSIS, events, timings);
+            try {
+                results = staticAnalysis.runSource(code);
+            } finally {
+                permit.close();
+            }
+            List<AnalysisFinding> findings = StaticAnalysisPipeline.merge(results);
+            if (results.stream().noneMatch(StaticAnalysisPipeline.EngineResult::failed)) {
+                findingsCache.put(code, findings);
             }
+            span.attribute("findings", findings.size());
+            return findings;
         }
-        dir.delete();
     }
 
     private void addCorsHeaders(HttpExchange exchange) {
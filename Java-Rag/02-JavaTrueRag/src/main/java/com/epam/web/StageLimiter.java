@@ -0,0 +1,158 @@
+package com.epam.web;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Admission control for the stages of a request. Each stage has its own number of
+ * concurrent slots and its own bounded wait queue, so cheap stages never wait behind a
+ * slow one: a static-analysis request is not held up by LLM calls that fill the
+ * generation stage.
+ * <p>
+ * A request that finds its stage full waits in FIFO order; when the queue is full too it
+ * is rejected with {@link SaturatedException}, which the server turns into a 429.
+ * Limits come from system properties, e.g. {@code -Drag.stage.generation.permits=4
+ * -Drag.stage.generation.queue=32}; the property prefix is {@code rag.stage.<stage id>}.
+ */
+final class StageLimiter {
+
+    /**
+     * The stages requests pass through, with their default limits.
+     */
+    enum Stage {
+        STATIC_ANALYSIS("static-analysis", Runtime.getRuntime().availableProcessors(), 64),
+        RETRIEVAL("retrieval", Runtime.getRuntime().availableProcessors(), 64),
+        GENERATION("generation", 2, 16);
+
+        private final String id;
+        private final int defaultPermits;
+        private final int defaultQueue;
+
+        Stage(String id, int defaultPermits, int defaultQueue) {
+            this.id = id;
+            this.defaultPermits = defaultPermits;
+            this.defaultQueue = defaultQueue;
+        }
+
+        /**
+         * @return Stage name used in configuration and responses
+         */
+        String id() {
+            return id;
+        }
+    }
+
+    /**
+     * Thrown when a stage and its wait queue are both full.
+     */
+    static final class SaturatedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final Stage stage;
+
+        SaturatedException(Stage stage, int queued) {
+            super("Server is busy: the " + stage.id() + " stage has " + queued + " requests waiting. Try again shortly.");
+            this.stage = stage;
+        }
+
+        Stage stage() {
+            return stage;
+        }
+    }
+
+    /**
+     * A slot in a stage. Closing it lets the next queued request in.
+     */
+    static final class Permit implements AutoCloseable {
+        private final Gate gate;
+        private boolean released;
+
+        private Permit(Gate gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                gate.slots.release();
+            }
+        }
+    }
+
+    private static final class Gate {
+        private final Semaphore slots;
+        private final int permits;
+        private final int maxQueue;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private Gate(int permits, int maxQueue) {
+            this.slots = new Semaphore(permits, true);
+            this.permits = permits;
+            this.maxQueue = maxQueue;
+        }
+    }
+
+    private final Map<Stage, Gate> gates = new EnumMap<>(Stage.class);
+
+    /**
+     * Creates a limiter with limits from system properties, falling back to the stage defaults.
+     */
+    StageLimiter() {
+        for (Stage stage : Stage.values()) {
+            int permits = Integer.getInteger("rag.stage." + stage.id() + ".permits", stage.defaultPermits);
+            int queue = Integer.getInteger("rag.stage." + stage.id() + ".queue", stage.defaultQueue);
+            gates.put(stage, new Gate(Math.max(1, permits), Math.max(0, queue)));
+        }
+    }
+
+    /**
+     * Takes a slot in a stage, waiting in line if all slots are busy.
+     *
+     * @param stage The stage to enter
+     * @param onQueued Called if the request has to wait, with the number of requests waiting
+     *                 for the stage when it joined, itself included; a snapshot, not a live position
+     * @return The slot; close it when the stage is done
+     * @throws SaturatedException If the stage's queue is full
+     * @throws InterruptedException If interrupted while waiting
+     */
+    Permit enter(Stage stage, IntConsumer onQueued) throws InterruptedException {
+        Gate gate = gates.get(stage);
+        // The timed variant respects fairness, so a new request cannot jump the queue
+        if (gate.slots.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return new Permit(gate);
+        }
+        int waiting = gate.waiting.incrementAndGet();
+        try {
+            if (waiting > gate.maxQueue) {
+                throw new SaturatedException(stage, gate.maxQueue);
+            }
+            onQueued.accept(waiting);
+            gate.slots.acquire();
+            return new Permit(gate);
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Number of requests currently holding a slot in the stage
+     */
+    int active(Stage stage) {
+        Gate gate = gates.get(stage);
+        return gate.permits - gate.slots.availablePermits();
+    }
+
+    /**
+     * @return Number of requests currently waiting for a slot in the stage
+     */
+    int queued(Stage stage) {
+        Gate gate = gates.get(stage);
+        // Rejected requests count as waiting for a moment before they give up
+        return Math.min(gate.waiting.get(), gate.maxQueue);
+    }
+}
@@ -14,6 +14,7 @@ public class WebRunner {
         int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
         RagWebServer server = new RagWebServer(port);
         server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
         System.out.println("RAG Web Server started at http://localhost:" + port);
         System.out.println("Press Ctrl+C to stop.");
     }